@@ -0,0 +1,41 @@
+package com.example.mediapipepose;
+
+import static org.junit.Assert.assertTrue;
+
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+// Run with ./gradlew connectedAndroidTest; the timings are in logcat under the PoseClassifierBench tag.
+@RunWith(AndroidJUnit4.class)
+public class PoseClassifierBenchmarkTest {
+    private static final String TAG = "PoseClassifierBench";
+    private static final int CLASSES = 4;
+    private static final int ITERATIONS = 2000;
+    private static final long SEED = 18;
+
+    @Test
+    public void arrayDirectAndBatchedPaths() {
+        Random random = new Random(SEED);
+        float[][] weights = new float[CLASSES][PoseFeatures.SIZE];
+        for (float[] row : weights) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = (float) random.nextGaussian() * 0.1f;
+            }
+        }
+        float[] bias = new float[CLASSES];
+        PoseClassifier classifier = PoseClassifier.create(
+                TestModels.floatClassifier(weights, bias), Arrays.asList("a", "b", "c", "d"), 1, 1);
+        try {
+            String report = classifier.benchmark(
+                    SyntheticPoses.standing(), PoseAnalyticsEngine.LANDMARK_COUNT, ITERATIONS);
+            Log.i(TAG, report);
+            assertTrue(report, report.startsWith("pose classifier x" + ITERATIONS));
+        } finally {
+            classifier.close();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.mediapipepose;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+// Runs the same classifier as a float model and as its int8 quantization over identical PoseFeatures
+// vectors; the quantized path must not change what the app shows.
+@RunWith(AndroidJUnit4.class)
+public class PoseClassifierQuantizationTest {
+    private static final List<String> LABELS = Arrays.asList("standing", "falling", "lying");
+    // Fall progress of each class prototype, in label order.
+    private static final float[] PROTOTYPES = {0f, 0.5f, 1f};
+    private static final int INPUT_STEPS = 10;
+    // Keeps the logits within a few units, where the softmax is neither flat nor saturated.
+    private static final float LOGIT_GAIN = 0.003f;
+    private static final float CONFIDENCE_TOLERANCE = 0.03f;
+
+    @Test
+    public void int8ModelMatchesFloatModel() {
+        float[][] inputs = new float[INPUT_STEPS + 1][];
+        for (int i = 0; i <= INPUT_STEPS; i++) {
+            inputs[i] = features(SyntheticPoses.falling((float) i / INPUT_STEPS));
+        }
+        float[][] prototypes = new float[PROTOTYPES.length][];
+        for (int c = 0; c < PROTOTYPES.length; c++) {
+            prototypes[c] = features(SyntheticPoses.falling(PROTOTYPES[c]));
+        }
+        float[][] weights = new float[prototypes.length][PoseFeatures.SIZE];
+        float[] bias = new float[prototypes.length];
+        nearestPrototypeLayer(prototypes, weights, bias);
+
+        // Calibrate the int8 ranges on the inputs themselves, as a representative dataset would.
+        float inputMin = 0f;
+        float inputMax = 0f;
+        float logitMin = 0f;
+        float logitMax = 0f;
+        for (float[] input : inputs) {
+            for (float value : input) {
+                inputMin = Math.min(inputMin, value);
+                inputMax = Math.max(inputMax, value);
+            }
+            for (int c = 0; c < weights.length; c++) {
+                float logit = bias[c];
+                for (int i = 0; i < input.length; i++) {
+                    logit += weights[c][i] * input[i];
+                }
+                logitMin = Math.min(logitMin, logit);
+                logitMax = Math.max(logitMax, logit);
+            }
+        }
+
+        PoseClassifier.BatchResult floatResult = classify(
+                TestModels.floatClassifier(weights, bias), inputs, false);
+        PoseClassifier.BatchResult int8Result = classify(
+                TestModels.int8Classifier(weights, bias, inputMin, inputMax, logitMin, logitMax), inputs, true);
+
+        assertEquals(inputs.length, floatResult.getCount());
+        assertEquals(inputs.length, int8Result.getCount());
+        for (int i = 0; i < inputs.length; i++) {
+            String step = "fall progress " + i + "/" + INPUT_STEPS;
+            assertEquals(step, LABELS.get(floatResult.getIndex(i)), LABELS.get(int8Result.getIndex(i)));
+            assertEquals(step, floatResult.getConfidence(i), int8Result.getConfidence(i), CONFIDENCE_TOLERANCE);
+        }
+        // Guard against a degenerate layer that would pass by always answering the same class.
+        assertEquals(0, floatResult.getIndex(0));
+        assertEquals(1, floatResult.getIndex(INPUT_STEPS / 2));
+        assertEquals(2, floatResult.getIndex(INPUT_STEPS));
+    }
+
+    // Logit c is -|x - p_c|^2 / 2 plus a term shared by every class, scaled by LOGIT_GAIN. Measuring against
+    // the prototype mean keeps the shared term, and with it the logit range, small.
+    private static void nearestPrototypeLayer(float[][] prototypes, float[][] weights, float[] bias) {
+        float[] mean = new float[PoseFeatures.SIZE];
+        for (float[] prototype : prototypes) {
+            for (int i = 0; i < mean.length; i++) {
+                mean[i] += prototype[i] / prototypes.length;
+            }
+        }
+        for (int c = 0; c < prototypes.length; c++) {
+            double offset = 0.0;
+            for (int i = 0; i < mean.length; i++) {
+                weights[c][i] = LOGIT_GAIN * (prototypes[c][i] - mean[i]);
+                offset += prototypes[c][i] * prototypes[c][i] - mean[i] * mean[i];
+            }
+            bias[c] = (float) (-LOGIT_GAIN * offset / 2.0);
+        }
+    }
+
+    // Batches of more than MAX_BATCH_SIZE rows also exercise resizing the quantized input.
+    private static PoseClassifier.BatchResult classify(ByteBuffer model, float[][] inputs, boolean quantized) {
+        PoseClassifier classifier = PoseClassifier.create(model, LABELS, 1, 1);
+        try {
+            if (quantized) {
+                assertTrue(classifier.isQuantized());
+            } else {
+                assertFalse(classifier.isQuantized());
+            }
+            PoseClassifier.BatchResult result = new PoseClassifier.BatchResult(inputs.length);
+            classifier.classifyBatch(inputs, null, inputs.length, result);
+            return result;
+        } finally {
+            classifier.close();
+        }
+    }
+
+    private static float[] features(float[] frame) {
+        float[] features = new float[PoseFeatures.SIZE];
+        assertTrue(PoseFeatures.extract(frame, PoseAnalyticsEngine.LANDMARK_COUNT, features));
+        return features;
+    }
+}
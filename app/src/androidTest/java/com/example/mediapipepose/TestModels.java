@@ -0,0 +1,223 @@
+package com.example.mediapipepose;
+
+import com.google.flatbuffers.FlatBufferBuilder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.tensorflow.lite.schema.ActivationFunctionType;
+import org.tensorflow.lite.schema.Buffer;
+import org.tensorflow.lite.schema.BuiltinOperator;
+import org.tensorflow.lite.schema.BuiltinOptions;
+import org.tensorflow.lite.schema.FullyConnectedOptions;
+import org.tensorflow.lite.schema.FullyConnectedOptionsWeightsFormat;
+import org.tensorflow.lite.schema.Model;
+import org.tensorflow.lite.schema.Operator;
+import org.tensorflow.lite.schema.OperatorCode;
+import org.tensorflow.lite.schema.QuantizationParameters;
+import org.tensorflow.lite.schema.SoftmaxOptions;
+import org.tensorflow.lite.schema.SubGraph;
+import org.tensorflow.lite.schema.Tensor;
+import org.tensorflow.lite.schema.TensorType;
+
+// One FULLY_CONNECTED layer followed by SOFTMAX, written straight to the .tflite flatbuffer format so the
+// model tests do not depend on a converted asset.
+final class TestModels {
+    private static final int SCHEMA_VERSION = 3;
+    private static final int BUFFER_ALIGNMENT = 16;
+    private static final int EMPTY_BUFFER = 0;
+    private static final int INPUT = 0;
+    private static final int WEIGHTS = 1;
+    private static final int BIAS = 2;
+    private static final int LOGITS = 3;
+    private static final int SCORES = 4;
+    private static final int INT8_LEVELS = 255;
+    private static final int INT8_MIN = -128;
+    // TFLite requires int8 softmax outputs to use exactly this scale and zero point.
+    private static final float SCORE_SCALE = 1f / 256f;
+    private static final int SCORE_ZERO_POINT = -128;
+
+    private TestModels() {
+    }
+
+    // weights[c] holds the input weights of class c.
+    static ByteBuffer floatClassifier(float[][] weights, float[] bias) {
+        int classes = weights.length;
+        int inputs = weights[0].length;
+        FlatBufferBuilder builder = new FlatBufferBuilder(1024);
+        int[] buffers = {
+                buffer(builder, new byte[0]),
+                buffer(builder, floatBytes(flatten(weights))),
+                buffer(builder, floatBytes(bias)),
+        };
+        int[] tensors = new int[SCORES + 1];
+        tensors[INPUT] = tensor(builder, "input", new int[] {1, inputs}, TensorType.FLOAT32, EMPTY_BUFFER, 0);
+        tensors[WEIGHTS] = tensor(builder, "weights", new int[] {classes, inputs}, TensorType.FLOAT32, WEIGHTS, 0);
+        tensors[BIAS] = tensor(builder, "bias", new int[] {classes}, TensorType.FLOAT32, BIAS, 0);
+        tensors[LOGITS] = tensor(builder, "logits", new int[] {1, classes}, TensorType.FLOAT32, EMPTY_BUFFER, 0);
+        tensors[SCORES] = tensor(builder, "scores", new int[] {1, classes}, TensorType.FLOAT32, EMPTY_BUFFER, 0);
+        return finish(builder, tensors, buffers, 1, 1);
+    }
+
+    // The same layer fully quantized to int8, the way post-training quantization calibrates it: per-tensor
+    // affine input and logits over the given ranges, symmetric weights, and int32 bias at inputScale * weightScale.
+    static ByteBuffer int8Classifier(
+            float[][] weights, float[] bias, float inputMin, float inputMax, float logitMin, float logitMax) {
+        int classes = weights.length;
+        int inputs = weights[0].length;
+        float[] flatWeights = flatten(weights);
+        float weightMax = 0f;
+        for (float value : flatWeights) {
+            weightMax = Math.max(weightMax, Math.abs(value));
+        }
+        float inputScale = affineScale(inputMin, inputMax);
+        float weightScale = weightMax / Byte.MAX_VALUE;
+        float logitScale = affineScale(logitMin, logitMax);
+        byte[] quantizedWeights = new byte[flatWeights.length];
+        for (int i = 0; i < flatWeights.length; i++) {
+            quantizedWeights[i] = (byte) clampInt8(Math.round(flatWeights[i] / weightScale));
+        }
+        int[] quantizedBias = new int[classes];
+        for (int i = 0; i < classes; i++) {
+            quantizedBias[i] = Math.round(bias[i] / (inputScale * weightScale));
+        }
+        FlatBufferBuilder builder = new FlatBufferBuilder(1024);
+        int[] buffers = {
+                buffer(builder, new byte[0]),
+                buffer(builder, quantizedWeights),
+                buffer(builder, intBytes(quantizedBias)),
+        };
+        int[] tensors = new int[SCORES + 1];
+        tensors[INPUT] = tensor(builder, "input", new int[] {1, inputs}, TensorType.INT8, EMPTY_BUFFER,
+                quantization(builder, inputScale, affineZeroPoint(inputMin, inputScale)));
+        tensors[WEIGHTS] = tensor(builder, "weights", new int[] {classes, inputs}, TensorType.INT8, WEIGHTS,
+                quantization(builder, weightScale, 0));
+        tensors[BIAS] = tensor(builder, "bias", new int[] {classes}, TensorType.INT32, BIAS,
+                quantization(builder, inputScale * weightScale, 0));
+        tensors[LOGITS] = tensor(builder, "logits", new int[] {1, classes}, TensorType.INT8, EMPTY_BUFFER,
+                quantization(builder, logitScale, affineZeroPoint(logitMin, logitScale)));
+        tensors[SCORES] = tensor(builder, "scores", new int[] {1, classes}, TensorType.INT8, EMPTY_BUFFER,
+                quantization(builder, SCORE_SCALE, SCORE_ZERO_POINT));
+        // int8 kernels were added as FULLY_CONNECTED version 4 and SOFTMAX version 2.
+        return finish(builder, tensors, buffers, 4, 2);
+    }
+
+    private static ByteBuffer finish(
+            FlatBufferBuilder builder, int[] tensors, int[] buffers, int fullyConnectedVersion, int softmaxVersion) {
+        int[] codes = {
+                operatorCode(builder, BuiltinOperator.FULLY_CONNECTED, fullyConnectedVersion),
+                operatorCode(builder, BuiltinOperator.SOFTMAX, softmaxVersion),
+        };
+        int fullyConnectedOptions = FullyConnectedOptions.createFullyConnectedOptions(
+                builder, ActivationFunctionType.NONE, FullyConnectedOptionsWeightsFormat.DEFAULT, false, false);
+        int softmaxOptions = SoftmaxOptions.createSoftmaxOptions(builder, 1f);
+        int[] operators = {
+                Operator.createOperator(builder, 0,
+                        Operator.createInputsVector(builder, new int[] {INPUT, WEIGHTS, BIAS}),
+                        Operator.createOutputsVector(builder, new int[] {LOGITS}),
+                        BuiltinOptions.FullyConnectedOptions, fullyConnectedOptions, 0, (byte) 0, 0, 0),
+                Operator.createOperator(builder, 1,
+                        Operator.createInputsVector(builder, new int[] {LOGITS}),
+                        Operator.createOutputsVector(builder, new int[] {SCORES}),
+                        BuiltinOptions.SoftmaxOptions, softmaxOptions, 0, (byte) 0, 0, 0),
+        };
+        int subgraph = SubGraph.createSubGraph(builder,
+                SubGraph.createTensorsVector(builder, tensors),
+                SubGraph.createInputsVector(builder, new int[] {INPUT}),
+                SubGraph.createOutputsVector(builder, new int[] {SCORES}),
+                SubGraph.createOperatorsVector(builder, operators),
+                builder.createString("main"));
+        int model = Model.createModel(builder, SCHEMA_VERSION,
+                Model.createOperatorCodesVector(builder, codes),
+                Model.createSubgraphsVector(builder, new int[] {subgraph}),
+                builder.createString("pose classifier test model"),
+                Model.createBuffersVector(builder, buffers),
+                0, 0, 0);
+        Model.finishModelBuffer(builder, model);
+        byte[] bytes = builder.sizedByteArray();
+        // The interpreter only accepts direct buffers, and keeps reading this one for as long as it lives.
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).order(ByteOrder.nativeOrder());
+        direct.put(bytes);
+        direct.rewind();
+        return direct;
+    }
+
+    private static int operatorCode(FlatBufferBuilder builder, int code, int version) {
+        return OperatorCode.createOperatorCode(builder, (byte) code, 0, version, code);
+    }
+
+    // A quantization offset of 0 leaves the tensor unquantized.
+    private static int tensor(
+            FlatBufferBuilder builder, String name, int[] shape, byte type, int buffer, int quantization) {
+        int shapeOffset = Tensor.createShapeVector(builder, shape);
+        int nameOffset = builder.createString(name);
+        Tensor.startTensor(builder);
+        Tensor.addShape(builder, shapeOffset);
+        Tensor.addType(builder, type);
+        Tensor.addBuffer(builder, buffer);
+        Tensor.addName(builder, nameOffset);
+        if (quantization != 0) {
+            Tensor.addQuantization(builder, quantization);
+        }
+        return Tensor.endTensor(builder);
+    }
+
+    private static int quantization(FlatBufferBuilder builder, float scale, int zeroPoint) {
+        int scaleOffset = QuantizationParameters.createScaleVector(builder, new float[] {scale});
+        int zeroPointOffset = QuantizationParameters.createZeroPointVector(builder, new long[] {zeroPoint});
+        QuantizationParameters.startQuantizationParameters(builder);
+        QuantizationParameters.addScale(builder, scaleOffset);
+        QuantizationParameters.addZeroPoint(builder, zeroPointOffset);
+        return QuantizationParameters.endQuantizationParameters(builder);
+    }
+
+    // The range is widened to include zero so that zero is exactly representable, as the converter does.
+    private static float affineScale(float min, float max) {
+        return (Math.max(max, 0f) - Math.min(min, 0f)) / INT8_LEVELS;
+    }
+
+    private static int affineZeroPoint(float min, float scale) {
+        return clampInt8(Math.round(INT8_MIN - Math.min(min, 0f) / scale));
+    }
+
+    private static int clampInt8(int value) {
+        return Math.max(Byte.MIN_VALUE, Math.min(Byte.MAX_VALUE, value));
+    }
+
+    private static int buffer(FlatBufferBuilder builder, byte[] data) {
+        if (data.length == 0) {
+            Buffer.startBuffer(builder);
+            return Buffer.endBuffer(builder);
+        }
+        // Constant tensors are read in place, so keep their data aligned for the kernels.
+        builder.startVector(1, data.length, BUFFER_ALIGNMENT);
+        for (int i = data.length - 1; i >= 0; i--) {
+            builder.addByte(data[i]);
+        }
+        int dataOffset = builder.endVector();
+        return Buffer.createBuffer(builder, dataOffset);
+    }
+
+    private static float[] flatten(float[][] rows) {
+        int width = rows[0].length;
+        float[] flat = new float[rows.length * width];
+        for (int row = 0; row < rows.length; row++) {
+            System.arraycopy(rows[row], 0, flat, row * width, width);
+        }
+        return flat;
+    }
+
+    private static byte[] intBytes(int[] values) {
+        ByteBuffer bytes = ByteBuffer.allocate(values.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int value : values) {
+            bytes.putInt(value);
+        }
+        return bytes.array();
+    }
+
+    private static byte[] floatBytes(float[] values) {
+        ByteBuffer bytes = ByteBuffer.allocate(values.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (float value : values) {
+            bytes.putFloat(value);
+        }
+        return bytes.array();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.mediapipepose;
+
+// Turns vectors that arrive at an irregular frame rate into one vector per fixed time step. Each step on
+// the grid is interpolated linearly between the two frames around it, so the model sees the same motion
+// whether the scheduler delivered 4 or 12 frames per second.
+final class FixedStepResampler {
+    private final long stepMs;
+    private final float[] previous;
+    private long previousMs;
+    private long nextStepMs;
+    private boolean started;
+
+    FixedStepResampler(long stepMs, int size) {
+        this.stepMs = Math.max(1L, stepMs);
+        this.previous = new float[size];
+    }
+
+    void reset() {
+        started = false;
+    }
+
+    long getStepMs() {
+        return stepMs;
+    }
+
+    // Writes the steps that fall in (previous frame, timestampMs] to out and returns how many; the first frame
+    // after a reset is itself a step. When more steps fit than out holds, only the newest are written.
+    // Returns -1 for a timestamp that does not move forward.
+    int push(float[] values, long timestampMs, float[][] out) {
+        int size = previous.length;
+        if (!started) {
+            System.arraycopy(values, 0, out[0], 0, size);
+            System.arraycopy(values, 0, previous, 0, size);
+            previousMs = timestampMs;
+            nextStepMs = timestampMs + stepMs;
+            started = true;
+            return 1;
+        }
+        if (timestampMs <= previousMs) {
+            return -1;
+        }
+        int count = 0;
+        if (timestampMs >= nextStepMs) {
+            long steps = (timestampMs - nextStepMs) / stepMs + 1;
+            if (steps > out.length) {
+                nextStepMs += (steps - out.length) * stepMs;
+            }
+            float span = timestampMs - previousMs;
+            while (nextStepMs <= timestampMs) {
+                float t = (nextStepMs - previousMs) / span;
+                float[] row = out[count];
+                for (int i = 0; i < size; i++) {
+                    row[i] = previous[i] + (values[i] - previous[i]) * t;
+                }
+                count += 1;
+                nextStepMs += stepMs;
+            }
+        }
+        System.arraycopy(values, 0, previous, 0, size);
+        previousMs = timestampMs;
+        return count;
+    }
+}
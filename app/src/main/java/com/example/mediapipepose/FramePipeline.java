@@ -0,0 +1,238 @@
+package com.example.mediapipepose;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public final class FramePipeline {
+    public interface FrameHandler {
+        void process(Frame frame);
+    }
+
+    public static final class Frame {
+        private final FramePool.PooledBuffer pixels;
+        private final int width;
+        private final int height;
+        private final int rotationDegrees;
+        private final long timestampMs;
+
+        public Frame(
+                FramePool.PooledBuffer pixels,
+                int width,
+                int height,
+                int rotationDegrees,
+                long timestampMs) {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+            this.rotationDegrees = rotationDegrees;
+            this.timestampMs = timestampMs;
+        }
+
+        public FramePool.PooledBuffer getPixels() {
+            return pixels;
+        }
+
+        // Stages run concurrently, so each reader gets its own position and limit.
+        public ByteBuffer duplicateBuffer() {
+            return pixels.getBuffer().duplicate().order(ByteOrder.nativeOrder());
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getRotationDegrees() {
+            return rotationDegrees;
+        }
+
+        public long getTimestampMs() {
+            return timestampMs;
+        }
+
+        public Frame retain() {
+            pixels.retain();
+            return this;
+        }
+
+        public void release() {
+            pixels.release();
+        }
+    }
+
+    public static final class Stage {
+        private final String name;
+        private final FrameHandler handler;
+        private final ExecutorService executor;
+        private final AtomicReference<Frame> pending = new AtomicReference<>();
+        private final AtomicLong offeredCount = new AtomicLong();
+        private final AtomicLong processedCount = new AtomicLong();
+        private final AtomicLong droppedCount = new AtomicLong();
+        private final AtomicLong throttledCount = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final Runnable drainTask = this::drain;
+        private volatile long minIntervalMs;
+        private long nextDueMs;
+
+        private Stage(String name, FrameHandler handler) {
+            this.name = name;
+            this.handler = handler;
+            this.executor = Executors.newSingleThreadExecutor(
+                    runnable -> new Thread(runnable, "pipeline-" + name));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getQueueDepth() {
+            return pending.get() == null ? 0 : 1;
+        }
+
+        public long getOfferedCount() {
+            return offeredCount.get();
+        }
+
+        public long getProcessedCount() {
+            return processedCount.get();
+        }
+
+        public long getDroppedCount() {
+            return droppedCount.get();
+        }
+
+        public long getThrottledCount() {
+            return throttledCount.get();
+        }
+
+        public long getBusyNanos() {
+            return busyNanos.get();
+        }
+
+        public void setTargetFps(float fps) {
+            minIntervalMs = fps > 0f ? Math.round(1000f / fps) : 0L;
+        }
+
+        public float getTargetFps() {
+            long interval = minIntervalMs;
+            return interval > 0L ? 1000f / interval : 0f;
+        }
+
+        public void offer(Frame frame) {
+            offeredCount.incrementAndGet();
+            if (!admit(frame.getTimestampMs())) {
+                throttledCount.incrementAndGet();
+                return;
+            }
+            Frame previous = pending.getAndSet(frame.retain());
+            if (previous != null) {
+                // The stage is still on an older frame; the newer one replaces whatever was waiting.
+                droppedCount.incrementAndGet();
+                previous.release();
+                return;
+            }
+            try {
+                executor.execute(drainTask);
+            } catch (RuntimeException exception) {
+                Frame rejected = pending.getAndSet(null);
+                if (rejected != null) {
+                    rejected.release();
+                }
+            }
+        }
+
+        private synchronized boolean admit(long timestampMs) {
+            long interval = minIntervalMs;
+            if (interval <= 0L) {
+                return true;
+            }
+            if (timestampMs + interval / 4 < nextDueMs) {
+                return false;
+            }
+            // Advance on a fixed grid so camera jitter does not halve the rate; resync after a gap.
+            nextDueMs = timestampMs - nextDueMs > interval ? timestampMs + interval : nextDueMs + interval;
+            return true;
+        }
+
+        private void drain() {
+            Frame frame = pending.getAndSet(null);
+            if (frame == null) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                handler.process(frame);
+            } catch (RuntimeException ignored) {
+                // A failed frame must not stall the stage; the next frame starts clean.
+            } finally {
+                frame.release();
+                busyNanos.addAndGet(System.nanoTime() - start);
+                processedCount.incrementAndGet();
+            }
+        }
+
+        private void shutdown() {
+            executor.shutdown();
+            Frame frame = pending.getAndSet(null);
+            if (frame != null) {
+                frame.release();
+            }
+        }
+    }
+
+    private final List<Stage> stages = new ArrayList<>();
+    private final AtomicLong capturedCount = new AtomicLong();
+
+    public synchronized Stage addStage(String name, FrameHandler handler) {
+        Stage stage = new Stage(name, handler);
+        stages.add(stage);
+        return stage;
+    }
+
+    public List<Stage> getStages() {
+        synchronized (this) {
+            return Collections.unmodifiableList(new ArrayList<>(stages));
+        }
+    }
+
+    public long getCapturedCount() {
+        return capturedCount.get();
+    }
+
+    public void recordCaptured() {
+        capturedCount.incrementAndGet();
+    }
+
+    public synchronized void shutdown() {
+        for (Stage stage : stages) {
+            stage.shutdown();
+        }
+    }
+
+    public String formatStats() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("pipeline captured=").append(capturedCount.get());
+        for (Stage stage : getStages()) {
+            builder.append(' ')
+                    .append(stage.name)
+                    .append("[depth=").append(stage.getQueueDepth())
+                    .append(" offered=").append(stage.getOfferedCount())
+                    .append(" processed=").append(stage.getProcessedCount())
+                    .append(" dropped=").append(stage.getDroppedCount())
+                    .append(" throttled=").append(stage.getThrottledCount())
+                    .append(" busyMs=").append(stage.getBusyNanos() / 1_000_000L)
+                    .append(']');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.mediapipepose;
+
+import android.graphics.Bitmap;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.webrtc.JavaI420Buffer;
+
+public final class FramePool {
+    private static final int DEFAULT_MAX_IDLE_PER_SIZE = 4;
+
+    public final class PooledBitmap {
+        private final Bitmap bitmap;
+        private final long key;
+        private final AtomicInteger refCount = new AtomicInteger();
+
+        private PooledBitmap(Bitmap bitmap, long key) {
+            this.bitmap = bitmap;
+            this.key = key;
+        }
+
+        public Bitmap getBitmap() {
+            return bitmap;
+        }
+
+        public PooledBitmap retain() {
+            refCount.incrementAndGet();
+            return this;
+        }
+
+        public void release() {
+            int remaining = refCount.decrementAndGet();
+            if (remaining == 0) {
+                recycle(this);
+            } else if (remaining < 0) {
+                throw new IllegalStateException("PooledBitmap released too many times");
+            }
+        }
+    }
+
+    public final class PooledBuffer {
+        private final ByteBuffer buffer;
+        private final IntBuffer intBuffer;
+        private final AtomicInteger refCount = new AtomicInteger();
+        private final Runnable releaseCallback = this::release;
+        private ByteBuffer planeY;
+        private ByteBuffer planeU;
+        private ByteBuffer planeV;
+        private int planeWidth;
+        private int planeHeight;
+
+        private PooledBuffer(int capacity) {
+            this.buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+            this.intBuffer = buffer.asIntBuffer();
+        }
+
+        public ByteBuffer getBuffer() {
+            return buffer;
+        }
+
+        public IntBuffer getIntBuffer() {
+            return intBuffer;
+        }
+
+        public PooledBuffer retain() {
+            refCount.incrementAndGet();
+            return this;
+        }
+
+        public void release() {
+            int remaining = refCount.decrementAndGet();
+            if (remaining == 0) {
+                recycle(this);
+            } else if (remaining < 0) {
+                throw new IllegalStateException("PooledBuffer released too many times");
+            }
+        }
+
+        private JavaI420Buffer wrapI420(int width, int height) {
+            int chromaWidth = (width + 1) / 2;
+            if (planeY == null || planeWidth != width || planeHeight != height) {
+                int chromaHeight = (height + 1) / 2;
+                int ySize = width * height;
+                int chromaSize = chromaWidth * chromaHeight;
+                planeY = ImageUtils.slice(buffer, 0, ySize);
+                planeU = ImageUtils.slice(buffer, ySize, chromaSize);
+                planeV = ImageUtils.slice(buffer, ySize + chromaSize, chromaSize);
+                planeWidth = width;
+                planeHeight = height;
+            }
+            return JavaI420Buffer.wrap(
+                    width,
+                    height,
+                    planeY,
+                    width,
+                    planeU,
+                    chromaWidth,
+                    planeV,
+                    chromaWidth,
+                    releaseCallback);
+        }
+    }
+
+    private static final class Bucket<T> {
+        final long key;
+        final ArrayDeque<T> idle = new ArrayDeque<>();
+
+        Bucket(long key) {
+            this.key = key;
+        }
+    }
+
+    private final List<Bucket<PooledBitmap>> bitmapBuckets = new ArrayList<>();
+    private final List<Bucket<PooledBuffer>> bufferBuckets = new ArrayList<>();
+    private final int maxIdlePerSize;
+    private long hitCount;
+    private long missCount;
+    private int outstandingCount;
+
+    public FramePool() {
+        this(DEFAULT_MAX_IDLE_PER_SIZE);
+    }
+
+    public FramePool(int maxIdlePerSize) {
+        this.maxIdlePerSize = Math.max(1, maxIdlePerSize);
+    }
+
+    public PooledBitmap acquireBitmap(int width, int height) {
+        long key = ((long) width << 32) | (height & 0xFFFFFFFFL);
+        PooledBitmap pooled;
+        synchronized (this) {
+            pooled = bucketFor(bitmapBuckets, key).idle.pollLast();
+            if (pooled != null) {
+                hitCount += 1;
+            } else {
+                missCount += 1;
+            }
+            outstandingCount += 1;
+        }
+        if (pooled == null) {
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            pooled = new PooledBitmap(bitmap, key);
+        }
+        return pooled.retain();
+    }
+
+    public PooledBuffer acquireBuffer(int capacity) {
+        PooledBuffer pooled;
+        synchronized (this) {
+            pooled = bucketFor(bufferBuckets, capacity).idle.pollLast();
+            if (pooled != null) {
+                hitCount += 1;
+            } else {
+                missCount += 1;
+            }
+            outstandingCount += 1;
+        }
+        if (pooled == null) {
+            pooled = new PooledBuffer(capacity);
+        }
+        pooled.buffer.clear();
+        return pooled.retain();
+    }
+
+    public JavaI420Buffer acquireI420(int width, int height) {
+        int chromaWidth = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        PooledBuffer pooled = acquireBuffer(width * height + chromaWidth * chromaHeight * 2);
+        try {
+            return pooled.wrapI420(width, height);
+        } catch (RuntimeException exception) {
+            pooled.release();
+            throw exception;
+        }
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized int getOutstandingCount() {
+        return outstandingCount;
+    }
+
+    public synchronized void clear() {
+        for (Bucket<PooledBitmap> bucket : bitmapBuckets) {
+            for (PooledBitmap pooled : bucket.idle) {
+                pooled.bitmap.recycle();
+            }
+            bucket.idle.clear();
+        }
+        bitmapBuckets.clear();
+        bufferBuckets.clear();
+    }
+
+    private void recycle(PooledBitmap pooled) {
+        boolean kept;
+        synchronized (this) {
+            outstandingCount -= 1;
+            ArrayDeque<PooledBitmap> idle = bucketFor(bitmapBuckets, pooled.key).idle;
+            kept = idle.size() < maxIdlePerSize && !pooled.bitmap.isRecycled();
+            if (kept) {
+                idle.addLast(pooled);
+            }
+        }
+        if (!kept) {
+            pooled.bitmap.recycle();
+        }
+    }
+
+    private void recycle(PooledBuffer pooled) {
+        synchronized (this) {
+            outstandingCount -= 1;
+            ArrayDeque<PooledBuffer> idle = bucketFor(bufferBuckets, pooled.buffer.capacity()).idle;
+            if (idle.size() < maxIdlePerSize) {
+                idle.addLast(pooled);
+            }
+        }
+    }
+
+    private static <T> Bucket<T> bucketFor(List<Bucket<T>> buckets, long key) {
+        for (int i = 0; i < buckets.size(); i++) {
+            Bucket<T> bucket = buckets.get(i);
+            if (bucket.key == key) {
+                return bucket;
+            }
+        }
+        Bucket<T> bucket = new Bucket<>(key);
+        buckets.add(bucket);
+        return bucket;
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.mediapipepose;
+
+import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+public final class HandRoiPlanner {
+    private static final int MAX_PENDING = 8;
+    private static final int MAX_HANDS = 2;
+    // Every pending frame plus the previous plan can hold a slot, so one is always free.
+    private static final int PLAN_POOL_SIZE = MAX_PENDING + 2;
+    private static final int LEFT_WRIST = 15;
+    private static final int RIGHT_WRIST = 16;
+    private static final int LEFT_PINKY = 17;
+    private static final int RIGHT_PINKY = 18;
+    private static final int LEFT_INDEX = 19;
+    private static final int RIGHT_INDEX = 20;
+    private static final int MIN_POSE_LANDMARKS = 23;
+    private static final float WRIST_CONFIDENCE = 0.6f;
+    private static final float HAND_SIZE_SCALE = 3.2f;
+    private static final float HAND_CENTER_SHIFT = 0.8f;
+    private static final int MIN_TILE_SIZE = 64;
+    private static final float KEEP_CENTER_FRACTION = 0.15f;
+    private static final float KEEP_SIZE_RATIO = 1.25f;
+
+    // Hand crops are packed side by side into one mosaic so the landmarker runs once per frame.
+    // Plans are pooled by the planner; a result callback copies its plan out with take().
+    public static final class Plan {
+        private final int[] tileLefts = new int[MAX_HANDS];
+        private final int[] tileTops = new int[MAX_HANDS];
+        private int tileSize;
+        private int tileCount;
+        private int frameWidth;
+        private int frameHeight;
+
+        private void copyFrom(Plan other) {
+            tileSize = other.tileSize;
+            tileCount = other.tileCount;
+            frameWidth = other.frameWidth;
+            frameHeight = other.frameHeight;
+            System.arraycopy(other.tileLefts, 0, tileLefts, 0, MAX_HANDS);
+            System.arraycopy(other.tileTops, 0, tileTops, 0, MAX_HANDS);
+        }
+
+        public int getTileSize() {
+            return tileSize;
+        }
+
+        public int getTileCount() {
+            return tileCount;
+        }
+
+        public int getTileLeft(int index) {
+            return tileLefts[index];
+        }
+
+        public int getTileTop(int index) {
+            return tileTops[index];
+        }
+
+        public int getMosaicWidth() {
+            return tileSize * tileCount;
+        }
+
+        public int getMosaicHeight() {
+            return tileSize;
+        }
+
+        public FramePool.PooledBuffer buildMosaic(
+                FramePool.PooledBuffer source,
+                int sourceWidth,
+                FramePool pool) {
+            return ImageUtils.mosaicRgba(
+                    source, sourceWidth, tileLefts, tileTops, tileCount, tileSize, pool);
+        }
+
+        public int getFrameWidth() {
+            return frameWidth;
+        }
+
+        public int getFrameHeight() {
+            return frameHeight;
+        }
+
+        // Each hand is assigned to the tile its wrist landed in and mapped back with that tile's offset.
+        public List<List<NormalizedLandmark>> toFrame(List<List<NormalizedLandmark>> hands) {
+            if (hands == null || hands.isEmpty()) {
+                return hands;
+            }
+            float mosaicWidth = getMosaicWidth();
+            List<List<NormalizedLandmark>> mapped = new ArrayList<>(hands.size());
+            for (List<NormalizedLandmark> hand : hands) {
+                if (hand == null || hand.isEmpty()) {
+                    continue;
+                }
+                int tile = (int) (hand.get(0).x() * mosaicWidth) / tileSize;
+                tile = Math.max(0, Math.min(tileCount - 1, tile));
+                float tileOffset = (float) tile / tileCount;
+                float scaleX = (float) tileSize / frameWidth;
+                float scaleY = (float) tileSize / frameHeight;
+                float left = (float) tileLefts[tile] / frameWidth;
+                float top = (float) tileTops[tile] / frameHeight;
+                List<NormalizedLandmark> mappedHand = new ArrayList<>(hand.size());
+                for (NormalizedLandmark landmark : hand) {
+                    float tileX = (landmark.x() - tileOffset) * tileCount;
+                    mappedHand.add(NormalizedLandmark.create(
+                            left + tileX * scaleX,
+                            top + landmark.y() * scaleY,
+                            landmark.z() * scaleX,
+                            landmark.visibility(),
+                            landmark.presence()));
+                }
+                mapped.add(mappedHand);
+            }
+            return mapped;
+        }
+    }
+
+    private final long[] pendingTimestamps = new long[MAX_PENDING];
+    private final Plan[] pendingPlans = new Plan[MAX_PENDING];
+    private final Plan[] planPool = new Plan[PLAN_POOL_SIZE];
+    private final float[] centers = new float[MAX_HANDS * 2];
+    private final float[] sizes = new float[MAX_HANDS];
+    private int pendingIndex;
+    private Plan previous;
+    private long guidedCount;
+    private long fullFrameCount;
+
+    public HandRoiPlanner() {
+        for (int i = 0; i < PLAN_POOL_SIZE; i++) {
+            planPool[i] = new Plan();
+        }
+    }
+
+    // Returns null when neither wrist is confident; the caller should run full-frame palm detection.
+    // The returned plan stays valid until its frame is taken.
+    public synchronized Plan plan(
+            List<NormalizedLandmark> pose,
+            int frameWidth,
+            int frameHeight,
+            long timestampMs) {
+        Plan plan = null;
+        if (pose != null && pose.size() >= MIN_POSE_LANDMARKS) {
+            int count = 0;
+            if (handBox(pose, LEFT_WRIST, LEFT_INDEX, LEFT_PINKY, frameWidth, frameHeight,
+                    centers, sizes, count)) {
+                count += 1;
+            }
+            if (handBox(pose, RIGHT_WRIST, RIGHT_INDEX, RIGHT_PINKY, frameWidth, frameHeight,
+                    centers, sizes, count)) {
+                count += 1;
+            }
+            if (count > 0) {
+                plan = buildPlan(count, frameWidth, frameHeight);
+            }
+        }
+        previous = plan;
+        if (plan == null) {
+            fullFrameCount += 1;
+        } else {
+            guidedCount += 1;
+        }
+        pendingTimestamps[pendingIndex] = timestampMs;
+        pendingPlans[pendingIndex] = plan;
+        pendingIndex = (pendingIndex + 1) % MAX_PENDING;
+        return plan;
+    }
+
+    // Copies the plan submitted with this frame into out and frees its slot. Returns false for a full-frame run.
+    public synchronized boolean take(long timestampMs, Plan out) {
+        for (int i = 0; i < MAX_PENDING; i++) {
+            if (pendingTimestamps[i] == timestampMs && pendingPlans[i] != null) {
+                out.copyFrom(pendingPlans[i]);
+                pendingPlans[i] = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void reset() {
+        previous = null;
+        for (int i = 0; i < MAX_PENDING; i++) {
+            pendingPlans[i] = null;
+        }
+    }
+
+    public synchronized long getGuidedCount() {
+        return guidedCount;
+    }
+
+    public synchronized long getFullFrameCount() {
+        return fullFrameCount;
+    }
+
+    private Plan buildPlan(int count, int frameWidth, int frameHeight) {
+        float size = sizes[0];
+        for (int i = 1; i < count; i++) {
+            size = Math.max(size, sizes[i]);
+        }
+        int maxTile = Math.min(frameWidth, frameHeight);
+        int tileSize = Math.min(maxTile, Math.max(MIN_TILE_SIZE, Math.round(size)));
+        Plan last = previous;
+        if (last != null && last.tileCount == count && last.frameWidth == frameWidth
+                && last.frameHeight == frameHeight
+                && tileSize <= last.tileSize * KEEP_SIZE_RATIO
+                && tileSize * KEEP_SIZE_RATIO >= last.tileSize) {
+            boolean centered = true;
+            for (int i = 0; i < count && centered; i++) {
+                float dx = centers[i * 2] - (last.tileLefts[i] + last.tileSize * 0.5f);
+                float dy = centers[i * 2 + 1] - (last.tileTops[i] + last.tileSize * 0.5f);
+                float limit = last.tileSize * KEEP_CENTER_FRACTION;
+                centered = Math.abs(dx) <= limit && Math.abs(dy) <= limit;
+            }
+            if (centered) {
+                // Steady tiles let the hand landmarker keep tracking instead of re-running palm detection.
+                return last;
+            }
+        }
+        Plan plan = freePlan();
+        for (int i = 0; i < count; i++) {
+            int left = Math.round(centers[i * 2] - tileSize * 0.5f);
+            int top = Math.round(centers[i * 2 + 1] - tileSize * 0.5f);
+            plan.tileLefts[i] = Math.max(0, Math.min(frameWidth - tileSize, left));
+            plan.tileTops[i] = Math.max(0, Math.min(frameHeight - tileSize, top));
+        }
+        plan.tileSize = tileSize;
+        plan.tileCount = count;
+        plan.frameWidth = frameWidth;
+        plan.frameHeight = frameHeight;
+        return plan;
+    }
+
+    private Plan freePlan() {
+        for (Plan candidate : planPool) {
+            if (candidate == previous) {
+                continue;
+            }
+            boolean pending = false;
+            for (int i = 0; i < MAX_PENDING && !pending; i++) {
+                pending = pendingPlans[i] == candidate;
+            }
+            if (!pending) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("Hand ROI plan pool exhausted");
+    }
+
+    private static boolean handBox(
+            List<NormalizedLandmark> pose,
+            int wristIndex,
+            int indexIndex,
+            int pinkyIndex,
+            int frameWidth,
+            int frameHeight,
+            float[] centers,
+            float[] sizes,
+            int slot) {
+        NormalizedLandmark wrist = pose.get(wristIndex);
+        NormalizedLandmark index = pose.get(indexIndex);
+        NormalizedLandmark pinky = pose.get(pinkyIndex);
+        if (!isConfident(wrist)) {
+            return false;
+        }
+        float wristX = wrist.x() * frameWidth;
+        float wristY = wrist.y() * frameHeight;
+        float knuckleX = (index.x() + pinky.x()) * 0.5f * frameWidth;
+        float knuckleY = (index.y() + pinky.y()) * 0.5f * frameHeight;
+        float dx = knuckleX - wristX;
+        float dy = knuckleY - wristY;
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        float centerX = wristX + dx * HAND_CENTER_SHIFT;
+        float centerY = wristY + dy * HAND_CENTER_SHIFT;
+        if (centerX < 0f || centerX > frameWidth || centerY < 0f || centerY > frameHeight) {
+            return false;
+        }
+        centers[slot * 2] = centerX;
+        centers[slot * 2 + 1] = centerY;
+        sizes[slot] = length * HAND_SIZE_SCALE;
+        return true;
+    }
+
+    private static boolean isConfident(NormalizedLandmark landmark) {
+        if (landmark == null) {
+            return false;
+        }
+        Optional<Float> visibility = landmark.visibility();
+        return visibility != null && visibility.isPresent() && visibility.get() >= WRIST_CONFIDENCE;
+    }
+}
@@ -1,138 +1,168 @@
 package com.example.mediapipepose;
 
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.ImageFormat;
 import android.graphics.PixelFormat;
-import android.graphics.Matrix;
-import android.graphics.Rect;
-import android.graphics.YuvImage;
 import androidx.camera.core.ImageProxy;
-import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import org.webrtc.JavaI420Buffer;
 import org.webrtc.YuvHelper;
 
 public final class ImageUtils {
     private ImageUtils() {}
 
-    public static Bitmap imageProxyToBitmap(ImageProxy imageProxy, int rotationDegrees) {
+    public static FramePool.PooledBuffer imageProxyToRgbaBuffer(ImageProxy imageProxy, FramePool pool) {
         if (imageProxy == null) {
             return null;
         }
-
-        if (imageProxy.getFormat() == PixelFormat.RGBA_8888) {
-            return rgbaImageProxyToBitmap(imageProxy, rotationDegrees);
+        int width = imageProxy.getWidth();
+        int height = imageProxy.getHeight();
+        // The analyzer is configured for OUTPUT_IMAGE_FORMAT_RGBA_8888; any other format is a setup error.
+        if (imageProxy.getFormat() != PixelFormat.RGBA_8888) {
+            return null;
         }
-
-        if (imageProxy.getImage() == null) {
+        ImageProxy.PlaneProxy[] planes = imageProxy.getPlanes();
+        if (planes == null || planes.length == 0 || planes[0].getPixelStride() != 4) {
             return null;
         }
+        int rowBytes = width * 4;
+        ByteBuffer buffer = planes[0].getBuffer();
+        FramePool.PooledBuffer rgba = pool.acquireBuffer(rowBytes * height);
+        compactRows(buffer, planes[0].getRowStride(), rowBytes, height, rgba.getBuffer());
+        return rgba;
+    }
 
-        int width = imageProxy.getWidth();
-        int height = imageProxy.getHeight();
-        byte[] nv21 = yuv420ToNv21(imageProxy);
-        YuvImage yuvImage = new YuvImage(nv21, ImageFormat.NV21, width, height, null);
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        yuvImage.compressToJpeg(new Rect(0, 0, width, height), 100, out);
-        byte[] imageBytes = out.toByteArray();
-        Bitmap bitmap = BitmapFactory.decodeByteArray(imageBytes, 0, imageBytes.length);
-        if (bitmap == null) {
+    public static FramePool.PooledBitmap rgbaBufferToBitmap(
+            FramePool.PooledBuffer source,
+            int width,
+            int height,
+            int rotationDegrees,
+            boolean mirror,
+            FramePool pool) {
+        if (source == null || source.getBuffer().capacity() < width * height * 4) {
             return null;
         }
+        int rotation = normalizeRotation(rotationDegrees);
+        int outputWidth = rotatedWidth(width, height, rotation);
+        int outputHeight = rotatedHeight(width, height, rotation);
+        FramePool.PooledBitmap frame = pool.acquireBitmap(outputWidth, outputHeight);
+        if (rotation == 0 && !mirror) {
+            frame.getBitmap().copyPixelsFromBuffer(source.getBuffer().duplicate());
+            return frame;
+        }
+        FramePool.PooledBuffer rotated = pool.acquireBuffer(width * height * 4);
+        copyPixelsRotated(
+                source.getIntBuffer(), width, width, height, rotation, mirror,
+                rotated.getIntBuffer(), outputWidth);
+        frame.getBitmap().copyPixelsFromBuffer(rotated.getBuffer());
+        rotated.release();
+        return frame;
+    }
 
-        if (rotationDegrees == 0) {
-            return bitmap;
+    public static FramePool.PooledBuffer cropRgba(
+            FramePool.PooledBuffer source,
+            int sourceWidth,
+            int left,
+            int top,
+            int width,
+            int height,
+            FramePool pool) {
+        if (source == null || width <= 0 || height <= 0) {
+            return null;
         }
-
-        Matrix matrix = new Matrix();
-        matrix.postRotate(rotationDegrees);
-        return Bitmap.createBitmap(
-                bitmap,
-                0,
-                0,
-                bitmap.getWidth(),
-                bitmap.getHeight(),
-                matrix,
-                true
-        );
+        FramePool.PooledBuffer crop = pool.acquireBuffer(width * height * 4);
+        copyRgbaRect(source.getBuffer(), sourceWidth, left, top, width, height,
+                crop.getBuffer(), width, 0);
+        return crop;
     }
 
-    private static Bitmap rgbaImageProxyToBitmap(ImageProxy imageProxy, int rotationDegrees) {
-        ImageProxy.PlaneProxy[] planes = imageProxy.getPlanes();
-        if (planes == null || planes.length == 0) {
+    public static FramePool.PooledBuffer mosaicRgba(
+            FramePool.PooledBuffer source,
+            int sourceWidth,
+            int[] tileLefts,
+            int[] tileTops,
+            int tileCount,
+            int tileSize,
+            FramePool pool) {
+        if (source == null || tileCount <= 0 || tileSize <= 0) {
             return null;
         }
-        int width = imageProxy.getWidth();
-        int height = imageProxy.getHeight();
-        ImageProxy.PlaneProxy plane = planes[0];
-        int rowStride = plane.getRowStride();
-        int pixelStride = plane.getPixelStride();
-        if (pixelStride != 4) {
-            return null;
+        int mosaicWidth = tileSize * tileCount;
+        FramePool.PooledBuffer mosaic = pool.acquireBuffer(mosaicWidth * tileSize * 4);
+        for (int i = 0; i < tileCount; i++) {
+            copyRgbaRect(source.getBuffer(), sourceWidth, tileLefts[i], tileTops[i], tileSize, tileSize,
+                    mosaic.getBuffer(), mosaicWidth, i * tileSize);
         }
+        return mosaic;
+    }
 
-        ByteBuffer buffer = plane.getBuffer();
-        buffer.rewind();
+    private static void copyRgbaRect(
+            ByteBuffer source,
+            int sourceWidth,
+            int left,
+            int top,
+            int width,
+            int height,
+            ByteBuffer destination,
+            int destinationWidth,
+            int destinationLeft) {
+        ByteBuffer from = source.duplicate();
+        ByteBuffer to = destination.duplicate();
+        int sourceRowBytes = sourceWidth * 4;
+        int destinationRowBytes = destinationWidth * 4;
         int rowBytes = width * 4;
-        byte[] rgba = new byte[rowBytes * height];
+        for (int row = 0; row < height; row++) {
+            int rowStart = (top + row) * sourceRowBytes + left * 4;
+            from.limit(rowStart + rowBytes);
+            from.position(rowStart);
+            to.position(row * destinationRowBytes + destinationLeft * 4);
+            to.put(from);
+        }
+    }
+
+    private static void compactRows(
+            ByteBuffer source,
+            int rowStride,
+            int rowBytes,
+            int height,
+            ByteBuffer destination) {
+        int limit = source.limit();
         for (int row = 0; row < height; row++) {
             int rowStart = row * rowStride;
-            buffer.position(rowStart);
-            buffer.get(rgba, row * rowBytes, rowBytes);
-        }
-
-        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-        bitmap.copyPixelsFromBuffer(ByteBuffer.wrap(rgba));
-        if (rotationDegrees == 0) {
-            return bitmap;
-        }
-
-        Matrix matrix = new Matrix();
-        matrix.postRotate(rotationDegrees);
-        return Bitmap.createBitmap(
-                bitmap,
-                0,
-                0,
-                bitmap.getWidth(),
-                bitmap.getHeight(),
-                matrix,
-                true
-        );
+            source.limit(rowStart + rowBytes);
+            source.position(rowStart);
+            destination.put(source);
+        }
+        source.limit(limit);
+        source.rewind();
+        destination.rewind();
     }
 
-    public static JavaI420Buffer imageProxyToI420(ImageProxy imageProxy) {
-        if (imageProxy == null || imageProxy.getImage() == null) {
-            return null;
+    private static void copyPixelsRotated(
+            IntBuffer source,
+            int sourceRowStride,
+            int width,
+            int height,
+            int rotation,
+            boolean mirror,
+            IntBuffer destination,
+            int destinationRowStride) {
+        for (int row = 0; row < height; row++) {
+            int sourceRowStart = row * sourceRowStride;
+            int destinationStart = rotatedIndex(
+                    0, row, width, height, rotation, mirror, destinationRowStride);
+            int destinationStep = rotatedIndex(
+                    1, row, width, height, rotation, mirror, destinationRowStride) - destinationStart;
+            int destinationIndex = destinationStart;
+            for (int col = 0; col < width; col++) {
+                destination.put(destinationIndex, source.get(sourceRowStart + col));
+                destinationIndex += destinationStep;
+            }
         }
-        int width = imageProxy.getWidth();
-        int height = imageProxy.getHeight();
-        ImageProxy.PlaneProxy[] planes = imageProxy.getPlanes();
-        ByteBuffer yBuffer = planes[0].getBuffer();
-        ByteBuffer uBuffer = planes[1].getBuffer();
-        ByteBuffer vBuffer = planes[2].getBuffer();
-        int yRowStride = planes[0].getRowStride();
-        int yPixelStride = planes[0].getPixelStride();
-        int uRowStride = planes[1].getRowStride();
-        int uPixelStride = planes[1].getPixelStride();
-        int vRowStride = planes[2].getRowStride();
-        int vPixelStride = planes[2].getPixelStride();
-
-        JavaI420Buffer i420Buffer = JavaI420Buffer.allocate(width, height);
-        copyPlane(yBuffer, yRowStride, yPixelStride,
-                i420Buffer.getDataY(), i420Buffer.getStrideY(), width, height);
-
-        int chromaWidth = (width + 1) / 2;
-        int chromaHeight = (height + 1) / 2;
-        copyPlane(uBuffer, uRowStride, uPixelStride,
-                i420Buffer.getDataU(), i420Buffer.getStrideU(), chromaWidth, chromaHeight);
-        copyPlane(vBuffer, vRowStride, vPixelStride,
-                i420Buffer.getDataV(), i420Buffer.getStrideV(), chromaWidth, chromaHeight);
-        return i420Buffer;
     }
 
-    public static JavaI420Buffer bitmapToI420(Bitmap bitmap) {
-        if (bitmap == null) {
+    public static JavaI420Buffer bitmapToI420(Bitmap bitmap, FramePool pool) {
+        if (bitmap == null || pool == null) {
             return null;
         }
 
@@ -147,11 +177,12 @@ public final class ImageUtils {
         int width = argbBitmap.getWidth();
         int height = argbBitmap.getHeight();
         int srcStride = width * 4;
-        ByteBuffer srcBuffer = ByteBuffer.allocateDirect(srcStride * height);
+        FramePool.PooledBuffer pooledSource = pool.acquireBuffer(srcStride * height);
+        ByteBuffer srcBuffer = pooledSource.getBuffer();
         argbBitmap.copyPixelsToBuffer(srcBuffer);
         srcBuffer.rewind();
 
-        JavaI420Buffer i420Buffer = JavaI420Buffer.allocate(width, height);
+        JavaI420Buffer i420Buffer = pool.acquireI420(width, height);
         try {
             YuvHelper.ABGRToI420(
                     srcBuffer,
@@ -167,72 +198,58 @@ public final class ImageUtils {
         } catch (RuntimeException | UnsatisfiedLinkError error) {
             i420Buffer.release();
             return null;
+        } finally {
+            pooledSource.release();
         }
         return i420Buffer;
     }
 
+    static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.clear();
+        duplicate.position(offset);
+        duplicate.limit(offset + length);
+        return duplicate.slice();
+    }
 
-    private static byte[] yuv420ToNv21(ImageProxy imageProxy) {
-        int width = imageProxy.getWidth();
-        int height = imageProxy.getHeight();
-        int ySize = width * height;
-        int uvSize = width * height / 2;
-        byte[] nv21 = new byte[ySize + uvSize];
-
-        ImageProxy.PlaneProxy[] planes = imageProxy.getPlanes();
-        ByteBuffer yBuffer = planes[0].getBuffer();
-        ByteBuffer uBuffer = planes[1].getBuffer();
-        ByteBuffer vBuffer = planes[2].getBuffer();
-
-        int yRowStride = planes[0].getRowStride();
-        int yPixelStride = planes[0].getPixelStride();
-        int offset = 0;
-
-        for (int row = 0; row < height; row++) {
-            int yRowStart = row * yRowStride;
-            for (int col = 0; col < width; col++) {
-                nv21[offset++] = yBuffer.get(yRowStart + col * yPixelStride);
-            }
-        }
+    static int normalizeRotation(int rotationDegrees) {
+        return ((rotationDegrees % 360) + 360) % 360;
+    }
 
-        int uvRowStride = planes[1].getRowStride();
-        int uvPixelStride = planes[1].getPixelStride();
-        int vRowStride = planes[2].getRowStride();
-        int vPixelStride = planes[2].getPixelStride();
-        int uvHeight = height / 2;
-        int uvWidth = width / 2;
-
-        for (int row = 0; row < uvHeight; row++) {
-            int uvRowStart = row * uvRowStride;
-            int vRowStart = row * vRowStride;
-            for (int col = 0; col < uvWidth; col++) {
-                int uIndex = uvRowStart + col * uvPixelStride;
-                int vIndex = vRowStart + col * vPixelStride;
-                nv21[offset++] = vBuffer.get(vIndex);
-                nv21[offset++] = uBuffer.get(uIndex);
-            }
-        }
+    static int rotatedWidth(int width, int height, int rotation) {
+        return rotation == 90 || rotation == 270 ? height : width;
+    }
 
-        return nv21;
+    static int rotatedHeight(int width, int height, int rotation) {
+        return rotation == 90 || rotation == 270 ? width : height;
     }
 
-    private static void copyPlane(
-            ByteBuffer source,
-            int sourceRowStride,
-            int sourcePixelStride,
-            ByteBuffer destination,
-            int destinationRowStride,
+    static int rotatedIndex(
+            int x,
+            int y,
             int width,
-            int height) {
-        for (int row = 0; row < height; row++) {
-            int sourceRowStart = row * sourceRowStride;
-            int destinationRowStart = row * destinationRowStride;
-            for (int col = 0; col < width; col++) {
-                destination.put(
-                        destinationRowStart + col,
-                        source.get(sourceRowStart + col * sourcePixelStride));
-            }
-        }
+            int height,
+            int rotation,
+            boolean mirror,
+            int destinationRowStride) {
+        int destinationX;
+        int destinationY;
+        if (rotation == 90) {
+            destinationX = height - 1 - y;
+            destinationY = x;
+        } else if (rotation == 180) {
+            destinationX = width - 1 - x;
+            destinationY = height - 1 - y;
+        } else if (rotation == 270) {
+            destinationX = y;
+            destinationY = width - 1 - x;
+        } else {
+            destinationX = x;
+            destinationY = y;
+        }
+        if (mirror) {
+            destinationX = rotatedWidth(width, height, rotation) - 1 - destinationX;
+        }
+        return destinationY * destinationRowStride + destinationX;
     }
-
 }
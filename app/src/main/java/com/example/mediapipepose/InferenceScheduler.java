@@ -0,0 +1,203 @@
+package com.example.mediapipepose;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+public final class InferenceScheduler {
+    interface Clock {
+        long nanoTime();
+    }
+
+    private static final int MAX_PENDING = 8;
+    private static final int LATENCY_WINDOW = 64;
+    private static final int ADJUST_EVERY_RESULTS = 8;
+    private static final float RATE_DECREASE_FACTOR = 0.85f;
+    private static final float RATE_INCREASE_STEP = 0.5f;
+    private static final float HEADROOM_RATIO = 0.7f;
+    private static final float STALE_PERCENTILE = 0.95f;
+    private static final long STALE_P95_MULTIPLIER = 2L;
+    private static final long STALE_MAX_BUDGETS = 3L;
+
+    private final long latencyBudgetMs;
+    private final int maxInFlight;
+    private final float minFps;
+    private final float maxFps;
+    private final Clock clock;
+    private long staleAfterNanos;
+    private final long[] pendingTimestamps = new long[MAX_PENDING];
+    private final long[] pendingSubmitNanos = new long[MAX_PENDING];
+    private final int[] pendingCallbacks = new int[MAX_PENDING];
+    private final long[] latencyNanos = new long[LATENCY_WINDOW];
+    private final long[] sortedLatency = new long[LATENCY_WINDOW];
+    private int pendingCount;
+    private int latencyIndex;
+    private int latencyCount;
+    private int resultsSinceAdjust;
+    private float targetFps;
+    private long submittedCount;
+    private long skippedCount;
+    private long expiredCount;
+    private long droppedCount;
+
+    public InferenceScheduler(long latencyBudgetMs, int maxInFlight, float minFps, float maxFps) {
+        this(latencyBudgetMs, maxInFlight, minFps, maxFps, System::nanoTime);
+    }
+
+    InferenceScheduler(long latencyBudgetMs, int maxInFlight, float minFps, float maxFps, Clock clock) {
+        this.latencyBudgetMs = latencyBudgetMs;
+        this.maxInFlight = Math.max(1, Math.min(MAX_PENDING, maxInFlight));
+        this.minFps = minFps;
+        this.maxFps = Math.max(minFps, maxFps);
+        this.clock = clock;
+        // LIVE_STREAM drops frames without calling back, so a lost slot must free up within a few frames.
+        this.staleAfterNanos = latencyBudgetMs * STALE_MAX_BUDGETS * 1_000_000L;
+        this.targetFps = this.maxFps;
+    }
+
+    // Returns false when earlier submissions have not called back yet; the caller should drop the frame.
+    public synchronized boolean trySubmit(long timestampMs, int expectedCallbacks) {
+        long now = clock.nanoTime();
+        expireStale(now);
+        if (pendingCount >= maxInFlight) {
+            skippedCount += 1;
+            return false;
+        }
+        pendingTimestamps[pendingCount] = timestampMs;
+        pendingSubmitNanos[pendingCount] = now;
+        pendingCallbacks[pendingCount] = Math.max(1, expectedCallbacks);
+        pendingCount += 1;
+        submittedCount += 1;
+        return true;
+    }
+
+    // Undo a trySubmit whose detectAsync call threw, so the slot is not held until it expires.
+    public synchronized void cancel(long timestampMs) {
+        int index = indexOf(timestampMs);
+        if (index >= 0) {
+            removeAt(index);
+            submittedCount -= 1;
+        }
+    }
+
+    public synchronized void onResult(long timestampMs) {
+        int index = indexOf(timestampMs);
+        if (index < 0) {
+            return;
+        }
+        long latency = clock.nanoTime() - pendingSubmitNanos[index];
+        pendingCallbacks[index] -= 1;
+        if (pendingCallbacks[index] > 0) {
+            return;
+        }
+        removeAt(index);
+        dropOlderThan(timestampMs);
+        latencyNanos[latencyIndex] = latency;
+        latencyIndex = (latencyIndex + 1) % LATENCY_WINDOW;
+        if (latencyCount < LATENCY_WINDOW) {
+            latencyCount += 1;
+        }
+        resultsSinceAdjust += 1;
+        if (resultsSinceAdjust >= ADJUST_EVERY_RESULTS) {
+            resultsSinceAdjust = 0;
+            adjustRate();
+        }
+    }
+
+    public synchronized float getTargetFps() {
+        return targetFps;
+    }
+
+    public synchronized int getInFlightCount() {
+        return pendingCount;
+    }
+
+    public synchronized long getSubmittedCount() {
+        return submittedCount;
+    }
+
+    public synchronized long getSkippedCount() {
+        return skippedCount;
+    }
+
+    public synchronized float getSkipRatio() {
+        long total = submittedCount + skippedCount;
+        return total == 0L ? 0f : (float) skippedCount / total;
+    }
+
+    public synchronized long getLatencyPercentileMs(float percentile) {
+        if (latencyCount == 0) {
+            return 0L;
+        }
+        System.arraycopy(latencyNanos, 0, sortedLatency, 0, latencyCount);
+        Arrays.sort(sortedLatency, 0, latencyCount);
+        int rank = Math.round(Math.max(0f, Math.min(1f, percentile)) * (latencyCount - 1));
+        return sortedLatency[rank] / 1_000_000L;
+    }
+
+    public synchronized String formatStats() {
+        return "inference fps=" + String.format(Locale.US, "%.1f", targetFps)
+                + " inFlight=" + pendingCount
+                + " submitted=" + submittedCount
+                + " skipped=" + skippedCount
+                + " expired=" + expiredCount
+                + " dropped=" + droppedCount
+                + " skipRatio=" + String.format(Locale.US, "%.2f", getSkipRatio())
+                + " p50=" + getLatencyPercentileMs(0.5f)
+                + "ms p90=" + getLatencyPercentileMs(0.9f)
+                + "ms p99=" + getLatencyPercentileMs(0.99f) + "ms";
+    }
+
+    // Only the results since the last adjustment count, so one slow burst is not punished repeatedly.
+    private void adjustRate() {
+        long sum = 0L;
+        for (int i = 1; i <= ADJUST_EVERY_RESULTS; i++) {
+            sum += latencyNanos[(latencyIndex - i + LATENCY_WINDOW) % LATENCY_WINDOW];
+        }
+        long recentMs = sum / ADJUST_EVERY_RESULTS / 1_000_000L;
+        if (recentMs > latencyBudgetMs) {
+            targetFps = Math.max(minFps, targetFps * RATE_DECREASE_FACTOR);
+        } else if (recentMs < latencyBudgetMs * HEADROOM_RATIO) {
+            targetFps = Math.min(maxFps, targetFps + RATE_INCREASE_STEP);
+        }
+        long staleMs = STALE_P95_MULTIPLIER * getLatencyPercentileMs(STALE_PERCENTILE);
+        staleMs = Math.max(latencyBudgetMs, Math.min(latencyBudgetMs * STALE_MAX_BUDGETS, staleMs));
+        staleAfterNanos = staleMs * 1_000_000L;
+    }
+
+    // Each landmarker calls back in timestamp order, so once a frame has all its results, an older frame
+    // still pending was dropped by the flow limiter and will never call back.
+    private void dropOlderThan(long timestampMs) {
+        for (int i = pendingCount - 1; i >= 0; i--) {
+            if (pendingTimestamps[i] < timestampMs) {
+                removeAt(i);
+                droppedCount += 1;
+            }
+        }
+    }
+
+    private void expireStale(long now) {
+        for (int i = pendingCount - 1; i >= 0; i--) {
+            if (now - pendingSubmitNanos[i] > staleAfterNanos) {
+                removeAt(i);
+                expiredCount += 1;
+            }
+        }
+    }
+
+    private int indexOf(long timestampMs) {
+        for (int i = 0; i < pendingCount; i++) {
+            if (pendingTimestamps[i] == timestampMs) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int index) {
+        int last = pendingCount - 1;
+        pendingTimestamps[index] = pendingTimestamps[last];
+        pendingSubmitNanos[index] = pendingSubmitNanos[last];
+        pendingCallbacks[index] = pendingCallbacks[last];
+        pendingCount = last;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.mediapipepose;
+
+import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+public final class LandmarkTransforms {
+    private LandmarkTransforms() {
+    }
+
+    // Results of a rotated detectAsync are normalized to the unrotated input; map them into the upright frame.
+    public static List<List<NormalizedLandmark>> toUpright(
+            List<List<NormalizedLandmark>> landmarks,
+            int rotationDegrees) {
+        int rotation = ImageUtils.normalizeRotation(rotationDegrees);
+        if (rotation == 0 || landmarks == null || landmarks.isEmpty()) {
+            return landmarks;
+        }
+        List<List<NormalizedLandmark>> upright = new ArrayList<>(landmarks.size());
+        for (List<NormalizedLandmark> group : landmarks) {
+            List<NormalizedLandmark> uprightGroup = new ArrayList<>(group.size());
+            for (NormalizedLandmark landmark : group) {
+                uprightGroup.add(toUpright(landmark, rotation));
+            }
+            upright.add(uprightGroup);
+        }
+        return upright;
+    }
+
+    // Results from a cropped input are normalized to the crop; map them back onto the full frame.
+    public static List<List<NormalizedLandmark>> fromCrop(
+            List<List<NormalizedLandmark>> landmarks,
+            float left,
+            float top,
+            float width,
+            float height) {
+        if (landmarks == null || landmarks.isEmpty()) {
+            return landmarks;
+        }
+        List<List<NormalizedLandmark>> mapped = new ArrayList<>(landmarks.size());
+        for (List<NormalizedLandmark> group : landmarks) {
+            List<NormalizedLandmark> mappedGroup = new ArrayList<>(group.size());
+            for (NormalizedLandmark landmark : group) {
+                mappedGroup.add(NormalizedLandmark.create(
+                        left + landmark.x() * width,
+                        top + landmark.y() * height,
+                        landmark.z() * width,
+                        landmark.visibility(),
+                        landmark.presence()));
+            }
+            mapped.add(mappedGroup);
+        }
+        return mapped;
+    }
+
+    // Packs x, y, z, visibility, presence per landmark into the PoseAnalyticsEngine frame layout.
+    public static int pack(List<NormalizedLandmark> landmarks, float[] frame) {
+        if (landmarks == null) {
+            return 0;
+        }
+        int count = Math.min(landmarks.size(), frame.length / PoseAnalyticsEngine.STRIDE);
+        for (int i = 0; i < count; i++) {
+            NormalizedLandmark landmark = landmarks.get(i);
+            int base = i * PoseAnalyticsEngine.STRIDE;
+            frame[base + PoseAnalyticsEngine.OFFSET_X] = landmark.x();
+            frame[base + PoseAnalyticsEngine.OFFSET_Y] = landmark.y();
+            frame[base + PoseAnalyticsEngine.OFFSET_Z] = landmark.z();
+            frame[base + PoseAnalyticsEngine.OFFSET_VISIBILITY] = valueOf(landmark.visibility());
+            frame[base + PoseAnalyticsEngine.OFFSET_PRESENCE] = valueOf(landmark.presence());
+        }
+        return count;
+    }
+
+    // Writes minX, maxX, minY, maxY into bbox and returns it, so per-frame callers can reuse one array.
+    public static float[] computeBoundingBox(List<NormalizedLandmark> landmarks, float[] bbox) {
+        float minX = 1f;
+        float maxX = 0f;
+        float minY = 1f;
+        float maxY = 0f;
+        for (int i = 0; i < landmarks.size(); i++) {
+            NormalizedLandmark landmark = landmarks.get(i);
+            if (landmark == null) {
+                continue;
+            }
+            float x = landmark.x();
+            float y = landmark.y();
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+        bbox[0] = minX;
+        bbox[1] = maxX;
+        bbox[2] = minY;
+        bbox[3] = maxY;
+        return bbox;
+    }
+
+    static NormalizedLandmark toUpright(NormalizedLandmark landmark, int rotation) {
+        float x = landmark.x();
+        float y = landmark.y();
+        float uprightX;
+        float uprightY;
+        if (rotation == 90) {
+            uprightX = 1f - y;
+            uprightY = x;
+        } else if (rotation == 180) {
+            uprightX = 1f - x;
+            uprightY = 1f - y;
+        } else if (rotation == 270) {
+            uprightX = y;
+            uprightY = 1f - x;
+        } else {
+            return landmark;
+        }
+        return NormalizedLandmark.create(
+                uprightX, uprightY, landmark.z(), landmark.visibility(), landmark.presence());
+    }
+
+    private static float valueOf(Optional<Float> value) {
+        return value != null && value.isPresent() ? value.get() : 0f;
+    }
+}
@@ -6,7 +6,10 @@ import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
 import android.os.Build;
 import android.os.Bundle;
 import android.util.Log;
@@ -17,6 +20,7 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.camera.core.CameraSelector;
 import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
@@ -29,6 +33,7 @@ import android.widget.ScrollView;
 import android.widget.TextView;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.mediapipe.framework.image.BitmapImageBuilder;
+import com.google.mediapipe.framework.image.ByteBufferImageBuilder;
 import com.google.mediapipe.framework.image.MPImage;
 import com.google.mediapipe.tasks.core.BaseOptions;
 import com.google.mediapipe.tasks.vision.core.ImageProcessingOptions;
@@ -43,10 +48,15 @@ import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
 import com.google.mediapipe.tasks.vision.poselandmarker.PoseLandmarker;
 import com.google.mediapipe.tasks.vision.poselandmarker.PoseLandmarker.PoseLandmarkerOptions;
 import com.google.mediapipe.tasks.vision.poselandmarker.PoseLandmarkerResult;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.webrtc.EglBase;
 import org.webrtc.SurfaceViewRenderer;
 import org.webrtc.VideoFrame;
@@ -60,32 +70,31 @@ public class MainActivity extends AppCompatActivity {
     private static final String MODEL_ASSET_PATH = "pose_landmarker_full.task";
     private static final String FACE_MODEL_ASSET_PATH = "face_landmarker.task";
     private static final String HAND_MODEL_ASSET_PATH = "hand_landmarker.task";
+    private static final String POSE_CLASSIFIER_MODEL_PATH = "pose_classifier.tflite";
+    private static final String POSE_LABELS_PATH = "pose_labels.txt";
+    private static final String POSE_SEQUENCE_MODEL_PATH = "pose_sequence.tflite";
+    private static final String POSE_SEQUENCE_LABELS_PATH = "pose_sequence_labels.txt";
     private static final long CLASSIFY_INTERVAL_MS = 200;
-    private static final float CROUCH_KNEE_ANGLE_THRESHOLD = 95f;
-    private static final float CROUCH_KNEE_ANGLE_SOFT = 108f;
-    private static final float SIT_KNEE_ANGLE_THRESHOLD = 140f;
-    private static final float CROUCH_HIP_OFFSET = 0.03f;
-    private static final float CROUCH_HIP_KNEE_SOFT = 0.05f;
-    private static final float CROUCH_HIP_HEEL_THRESHOLD = 0.18f;
-    private static final float CROUCH_MIN_CONFIDENCE = 0.6f;
-    private static final float CROUCH_HIP_HEEL_X_THRESHOLD = 0.08f;
-    private static final float WALKING_SPEED_THRESHOLD = 0.08f;
-    private static final int FALL_UPRIGHT_FRAMES = 12;
-    private static final int FALL_IMPULSE_FRAMES = 14;
-    private static final int FALL_POST_FRAMES = 24;
-    private static final int FALL_POST_STILL_FRAMES = 16;
-    private static final int FALL_POST_TIMEOUT_FRAMES = 36;
-    private static final int FALL_RECOVERY_FRAMES = 18;
-    private static final float FALL_HIP_DROP_THRESHOLD = 0.2f;
-    private static final float FALL_DOWN_SPEED_THRESHOLD = 1.0f;
-    private static final float FALL_STILL_SPEED_THRESHOLD = 0.2f;
-    private static final float FALL_MIN_BBOX_HEIGHT = 0.15f;
-    private static final float FALL_ANGLE_CHANGE_THRESHOLD = 50f;
-    private static final float FALL_ASPECT_CHANGE_THRESHOLD = 0.55f;
-    private static final float FALL_UPRIGHT_ANGLE = 22f;
-    private static final float FALL_LYING_ANGLE = 65f;
-    private static final float FALL_UPRIGHT_ASPECT = 1.4f;
-    private static final float FALL_LYING_ASPECT = 1.05f;
+    private static final long LOCAL_LABEL_HOLD_MS = 1000;
+    // Real frames are stamped with wall-clock time, so this never collides with a live timestamp.
+    private static final long WARMUP_TIMESTAMP_MS = 1;
+    // CameraX's default 4:3 analysis size, so the detectors warm up on the tensor sizes live frames use.
+    private static final int WARMUP_FRAME_WIDTH = 640;
+    private static final int WARMUP_FRAME_HEIGHT = 480;
+    private static final long WARMUP_TIMEOUT_MS = 3000;
+    private static final int WARMUP_POSE = 1;
+    private static final int WARMUP_FACE = 2;
+    private static final int WARMUP_HAND = 4;
+    private static final int WARMUP_ALL = WARMUP_POSE | WARMUP_FACE | WARMUP_HAND;
+    private static final long PIPELINE_LOG_INTERVAL_MS = 5000;
+    private static final float STREAM_TARGET_FPS = 30f;
+    private static final float INFERENCE_TARGET_FPS = 12f;
+    private static final float INFERENCE_MIN_FPS = 4f;
+    private static final long INFERENCE_LATENCY_BUDGET_MS = 120;
+    private static final int INFERENCE_MAX_IN_FLIGHT = 2;
+    private static final long HAND_ROI_MAX_POSE_AGE_MS = 500;
+    private static final long RESULT_SYNC_TIMEOUT_MS = 250;
+    private static final long POSE_ROI_FULL_FRAME_INTERVAL_MS = 1000;
     private static final String TAG = "PoseTracking";
 
     private enum RenderMode {
@@ -95,11 +104,9 @@ public class MainActivity extends AppCompatActivity {
         HAND
     }
 
-    private enum FallState {
-        IDLE,
-        ARMED,
-        POST_FALL,
-        FALLEN
+    private enum InferenceInput {
+        BITMAP,
+        RGBA_BUFFER
     }
 
     private PreviewView previewView;
@@ -114,37 +121,70 @@ public class MainActivity extends AppCompatActivity {
     private SurfaceViewRenderer remoteView;
     private EglBase eglBase;
     private ExecutorService cameraExecutor;
+    private final ExecutorService modelExecutor = Executors.newSingleThreadExecutor();
+    // Completes once the landmarkers and classifiers are built and warmed up.
+    private final CompletableFuture<Void> modelsReady = new CompletableFuture<>();
+    private final CountDownLatch landmarkerWarmup = new CountDownLatch(3);
+    private final AtomicInteger warmupPending = new AtomicInteger(WARMUP_ALL);
+    private final AtomicInteger warmupDetections = new AtomicInteger();
+    private volatile boolean landmarkersReady;
+    private volatile boolean firstPoseResultReported;
+    private long createdAtMs;
+    private final FramePool framePool = new FramePool();
+    private final Canvas streamCanvas = new Canvas();
+    private final FramePipeline framePipeline = new FramePipeline();
+    private FramePipeline.Stage inferenceStage;
+    private FramePipeline.Stage streamStage;
+    private final InferenceScheduler inferenceScheduler = new InferenceScheduler(
+            INFERENCE_LATENCY_BUDGET_MS, INFERENCE_MAX_IN_FLIGHT, INFERENCE_MIN_FPS, INFERENCE_TARGET_FPS);
+    private InferenceInput inferenceInput = InferenceInput.RGBA_BUFFER;
+    private boolean roiTrackingEnabled = true;
+    private final RoiTracker poseRoiTracker = new RoiTracker();
+    private final HandRoiPlanner handRoiPlanner = new HandRoiPlanner();
+    // Only touched by the hand landmarker's result thread.
+    private final HandRoiPlanner.Plan takenHandPlan = new HandRoiPlanner.Plan();
+    private volatile List<NormalizedLandmark> latestPoseFrameLandmarks;
+    private volatile long latestPoseTimestampMs;
+    private final PoseAnalyticsWorker poseAnalyticsWorker = new PoseAnalyticsWorker(
+            CLASSIFY_INTERVAL_MS,
+            new PoseAnalyticsWorker.Listener() {
+                @Override
+                public void onFallEvent(int personId, int event, long timestampMs) {
+                    handleLocalFallEvent(personId, event, timestampMs);
+                }
+
+                @Override
+                public void onPersonLabels(int[] personIds, int[] labels, int count, long timestampMs) {
+                    handleLocalPersonLabels(personIds, labels, count);
+                }
+
+                @Override
+                public void onPersonsTracked(int[] personIds, int[] frameIndexes, int count, long timestampMs) {
+                    overlayView.setPersonIds(personIds, frameIndexes, count, timestampMs);
+                }
+            });
+    private final PoseLabelClassifier poseLabelClassifier =
+            new PoseLabelClassifier(PoseLabelClassifier.Backend.BLEND);
+    private PoseSequenceClassifier poseSequenceClassifier;
+    private volatile long lastLocalLabelTimestampMs = 0;
+    // Only touched on the analytics thread.
+    private final String[] overlayPersonLabels = new String[PoseTracker.MAX_PEOPLE];
+    private final ResultSynchronizer resultSynchronizer =
+            new ResultSynchronizer(RESULT_SYNC_TIMEOUT_MS, this::onFusedResult);
+    private ImageProcessingOptions imageProcessingOptions;
+    private int imageProcessingRotation;
+    private volatile int inferenceRotationDegrees = 0;
     private PoseLandmarker poseLandmarker;
     private FaceLandmarker faceLandmarker;
     private HandLandmarker handLandmarker;
-    private WebRtcStreamer webRtcStreamer;
+    private volatile WebRtcStreamer webRtcStreamer;
     private ProcessCameraProvider cameraProvider;
     private CameraSelector currentCameraSelector = CameraSelector.DEFAULT_FRONT_CAMERA;
-    private RenderMode currentMode = RenderMode.POSE;
+    private volatile RenderMode currentMode = RenderMode.POSE;
     private long lastPoseLogTimestampMs = 0;
-    private long lastClassificationTimestampMs = 0;
     private long lastPoseSendTimestampMs = 0;
+    private long lastPipelineLogTimestampMs = 0;
     private String signalingUrl;
-    private long lastAnkleTimestampMs = 0;
-    private float lastLeftAnkleX = Float.NaN;
-    private float lastLeftAnkleY = Float.NaN;
-    private float lastRightAnkleX = Float.NaN;
-    private float lastRightAnkleY = Float.NaN;
-    private final float[] comYHistory = new float[FALL_IMPULSE_FRAMES];
-    private final float[] angleHistory = new float[FALL_IMPULSE_FRAMES];
-    private final float[] aspectHistory = new float[FALL_IMPULSE_FRAMES];
-    private final float[] downSpeedHistory = new float[FALL_IMPULSE_FRAMES];
-    private int fallHistoryIndex = 0;
-    private int fallHistoryCount = 0;
-    private int uprightFrames = 0;
-    private int postFrames = 0;
-    private int postStillFrames = 0;
-    private int postTimeoutFrames = 0;
-    private int recoveryFrames = 0;
-    private float lastComX = Float.NaN;
-    private float lastComY = Float.NaN;
-    private long lastFallSampleTimestampMs = 0;
-    private FallState fallState = FallState.IDLE;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -172,8 +212,18 @@ public class MainActivity extends AppCompatActivity {
             chatButton.setOnClickListener(view -> toggleCommandHistory());
         }
         cameraExecutor = Executors.newSingleThreadExecutor();
-
-        setupPoseLandmarker();
+        inferenceStage = framePipeline.addStage("inference", this::submitInference);
+        streamStage = framePipeline.addStage("stream", this::composeStreamFrame);
+        inferenceStage.setTargetFps(INFERENCE_TARGET_FPS);
+        poseRoiTracker.setFullFrameIntervalMs(POSE_ROI_FULL_FRAME_INTERVAL_MS);
+        streamStage.setTargetFps(STREAM_TARGET_FPS);
+
+        createdAtMs = System.currentTimeMillis();
+        if (poseClassText != null) {
+            poseClassText.setText(R.string.models_loading);
+        }
+        modelsReady.whenComplete((ignored, error) -> runOnUiThread(this::updatePoseClassTextForMode));
+        modelExecutor.execute(this::loadModels);
         signalingUrl = getString(R.string.signaling_url);
         webRtcStreamer = new WebRtcStreamer(this);
         webRtcStreamer.setRemoteRenderer(remoteView);
@@ -246,6 +296,200 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    // Runs on modelExecutor so onCreate returns straight away; frames are skipped until the landmarkers are ready.
+    private void loadModels() {
+        long start = System.currentTimeMillis();
+        try {
+            setupPoseLandmarker();
+            warmUpLandmarkers();
+            long landmarkersMs = System.currentTimeMillis() - start;
+            setupPoseClassifier();
+            setupPoseSequenceClassifier();
+            Log.i(TAG, "models ready in " + (System.currentTimeMillis() - start)
+                    + " ms (landmarkers " + landmarkersMs + " ms)");
+            modelsReady.complete(null);
+        } catch (RuntimeException error) {
+            Log.e(TAG, "Failed to load models", error);
+            modelsReady.completeExceptionally(error);
+        }
+    }
+
+    // LIVE_STREAM landmarkers only take detectAsync, so the warm-up frame comes back through the normal result
+    // listeners, which drop it by its timestamp. Live frames start once every landmarker has answered, or after
+    // the timeout so a graph that never answers cannot keep inference off.
+    private void warmUpLandmarkers() {
+        Bitmap bitmap = createWarmupBitmap();
+        MPImage image = new BitmapImageBuilder(bitmap).build();
+        long start = System.currentTimeMillis();
+        poseLandmarker.detectAsync(image, WARMUP_TIMESTAMP_MS);
+        faceLandmarker.detectAsync(image, WARMUP_TIMESTAMP_MS);
+        handLandmarker.detectAsync(image, WARMUP_TIMESTAMP_MS);
+        try {
+            if (landmarkerWarmup.await(WARMUP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                Log.i(TAG, "landmarker warm-up " + (System.currentTimeMillis() - start) + " ms on "
+                        + bitmap.getWidth() + "x" + bitmap.getHeight() + ", detected: "
+                        + warmupNames(warmupDetections.get(), "none; landmark models not exercised"));
+            } else {
+                Log.w(TAG, "Landmarker warm-up timed out after " + WARMUP_TIMEOUT_MS + " ms waiting for "
+                        + warmupNames(warmupPending.get(), "none") + "; starting live frames without it");
+                landmarkersReady = true;
+            }
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // A drawn, front-facing person with a face and open hands at the analysis size, so the detectors have
+    // someone to hand on to the landmark models. The log line reports which landmarkers actually found it.
+    private static Bitmap createWarmupBitmap() {
+        Bitmap bitmap = Bitmap.createBitmap(WARMUP_FRAME_WIDTH, WARMUP_FRAME_HEIGHT, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        canvas.drawColor(0xFFB8B8B0);
+        Paint paint = new Paint();
+        paint.setAntiAlias(true);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        float x = WARMUP_FRAME_WIDTH / 2f;
+        int skin = 0xFFD9A07E;
+        int shirt = 0xFF3A6EA5;
+        int trousers = 0xFF2E3A59;
+        for (int side = -1; side <= 1; side += 2) {
+            drawLimb(canvas, paint, trousers, 30f, x + side * 20f, 250f, x + side * 26f, 345f);
+            drawLimb(canvas, paint, trousers, 26f, x + side * 26f, 345f, x + side * 30f, 440f);
+            drawLimb(canvas, paint, 0xFF202020, 16f, x + side * 30f, 446f, x + side * 46f, 448f);
+            drawLimb(canvas, paint, shirt, 24f, x + side * 54f, 140f, x + side * 70f, 215f);
+            drawLimb(canvas, paint, skin, 18f, x + side * 70f, 215f, x + side * 82f, 280f);
+            // Open hand: palm plus spread fingers, so the palm detector has a hand shape to find.
+            drawLimb(canvas, paint, skin, 20f, x + side * 83f, 285f, x + side * 85f, 297f);
+            for (int finger = -2; finger <= 2; finger++) {
+                drawLimb(canvas, paint, skin, 5f, x + side * (85f + finger * 3f), 297f,
+                        x + side * (85f + finger * 6f), 318f);
+            }
+        }
+        drawLimb(canvas, paint, skin, 22f, x, 100f, x, 130f);
+        paint.setStyle(Paint.Style.FILL);
+        paint.setColor(shirt);
+        canvas.drawRoundRect(new RectF(x - 50f, 126f, x + 50f, 262f), 22f, 22f, paint);
+        paint.setStyle(Paint.Style.FILL);
+        paint.setColor(0xFF3B2A20);
+        canvas.drawOval(new RectF(x - 30f, 32f, x + 30f, 78f), paint);
+        paint.setColor(skin);
+        canvas.drawOval(new RectF(x - 27f, 44f, x + 27f, 110f), paint);
+        paint.setColor(0xFF1E1E1E);
+        canvas.drawCircle(x - 10f, 72f, 3.5f, paint);
+        canvas.drawCircle(x + 10f, 72f, 3.5f, paint);
+        drawLimb(canvas, paint, 0xFF3B2A20, 3f, x - 16f, 63f, x - 5f, 62f);
+        drawLimb(canvas, paint, 0xFF3B2A20, 3f, x + 5f, 62f, x + 16f, 63f);
+        drawLimb(canvas, paint, 0xFFB97E60, 3f, x, 76f, x - 2f, 86f);
+        drawLimb(canvas, paint, 0xFF9E4A4A, 3f, x - 9f, 95f, x + 9f, 95f);
+        return bitmap;
+    }
+
+    private static void drawLimb(
+            Canvas canvas, Paint paint, int color, float width, float x0, float y0, float x1, float y1) {
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setColor(color);
+        paint.setStrokeWidth(width);
+        canvas.drawLine(x0, y0, x1, y1, paint);
+    }
+
+    private boolean isWarmupResult(long timestampMs, int landmarker, boolean detected) {
+        if (timestampMs > WARMUP_TIMESTAMP_MS) {
+            return false;
+        }
+        finishWarmup(landmarker, detected);
+        return true;
+    }
+
+    // Counts each landmarker once, whether it answered with a result or an error.
+    private void finishWarmup(int landmarker, boolean detected) {
+        int pending = warmupPending.getAndUpdate(bits -> bits & ~landmarker);
+        if ((pending & landmarker) == 0) {
+            return;
+        }
+        if (detected) {
+            warmupDetections.getAndUpdate(bits -> bits | landmarker);
+        }
+        landmarkerWarmup.countDown();
+        if (pending == landmarker) {
+            landmarkersReady = true;
+        }
+    }
+
+    private void onLandmarkerError(int landmarker, RuntimeException error) {
+        Log.w(TAG, warmupNames(landmarker, "") + " landmarker error", error);
+        if (!landmarkersReady) {
+            // Errors carry no timestamp; before any live frame is sent, this one belongs to the warm-up.
+            finishWarmup(landmarker, false);
+        }
+    }
+
+    private static String warmupNames(int landmarkers, String none) {
+        StringBuilder names = new StringBuilder();
+        appendWarmupName(names, landmarkers, WARMUP_POSE, "pose");
+        appendWarmupName(names, landmarkers, WARMUP_FACE, "face");
+        appendWarmupName(names, landmarkers, WARMUP_HAND, "hand");
+        return names.length() == 0 ? none : names.toString();
+    }
+
+    private static void appendWarmupName(StringBuilder names, int landmarkers, int landmarker, String name) {
+        if ((landmarkers & landmarker) == 0) {
+            return;
+        }
+        if (names.length() > 0) {
+            names.append(", ");
+        }
+        names.append(name);
+    }
+
+    private void releaseModels() {
+        poseLabelClassifier.close();
+        if (poseSequenceClassifier != null) {
+            poseSequenceClassifier.close();
+        }
+        if (poseLandmarker != null) {
+            poseLandmarker.close();
+        }
+        if (faceLandmarker != null) {
+            faceLandmarker.close();
+        }
+        if (handLandmarker != null) {
+            handLandmarker.close();
+        }
+    }
+
+    private void setupPoseClassifier() {
+        poseLabelClassifier.setBackend(PoseLabelClassifier.Backend.parse(
+                getString(R.string.classifier_backend), PoseLabelClassifier.Backend.BLEND));
+        poseAnalyticsWorker.setClassifier(poseLabelClassifier);
+        PoseLabelClassifier.Backend backend = poseLabelClassifier.getBackend();
+        if (backend != PoseLabelClassifier.Backend.TFLITE && backend != PoseLabelClassifier.Backend.BLEND) {
+            return;
+        }
+        try {
+            PoseClassifier classifier =
+                    PoseClassifier.createFromAssets(this, POSE_CLASSIFIER_MODEL_PATH, POSE_LABELS_PATH);
+            Log.i(TAG, "pose classifier warm-up " + classifier.warmUp() + " ms");
+            poseLabelClassifier.setModel(classifier);
+        } catch (IOException | RuntimeException error) {
+            Log.w(TAG, "Pose classifier unavailable; using heuristic labels", error);
+        }
+    }
+
+    private void setupPoseSequenceClassifier() {
+        try {
+            poseSequenceClassifier = PoseSequenceClassifier.createFromAssets(
+                    this,
+                    POSE_SEQUENCE_MODEL_PATH,
+                    POSE_SEQUENCE_LABELS_PATH,
+                    PoseSequenceClassifier.DEFAULT_STEP_MS,
+                    PoseSequenceClassifier.DEFAULT_RUN_INTERVAL_MS);
+            Log.i(TAG, "sequence model warm-up " + poseSequenceClassifier.warmUp() + " ms");
+            poseAnalyticsWorker.setSequenceClassifier(poseSequenceClassifier);
+        } catch (IOException | RuntimeException error) {
+            Log.w(TAG, "Sequence fall model unavailable; using threshold fall detection", error);
+        }
+    }
+
     private void setupPoseLandmarker() {
         PoseLandmarkerOptions options = PoseLandmarkerOptions.builder()
                 .setBaseOptions(
@@ -254,7 +498,8 @@ public class MainActivity extends AppCompatActivity {
                                 .build())
                 .setRunningMode(RunningMode.LIVE_STREAM)
                 .setResultListener(this::onPoseResult)
-                .setNumPoses(1)
+                .setErrorListener(error -> onLandmarkerError(WARMUP_POSE, error))
+                .setNumPoses(PoseTracker.MAX_PEOPLE)
                 .build();
 
         poseLandmarker = PoseLandmarker.createFromOptions(this, options);
@@ -266,6 +511,7 @@ public class MainActivity extends AppCompatActivity {
                                 .build())
                 .setRunningMode(RunningMode.LIVE_STREAM)
                 .setResultListener(this::onFaceResult)
+                .setErrorListener(error -> onLandmarkerError(WARMUP_FACE, error))
                 .setNumFaces(1)
                 .build();
 
@@ -278,6 +524,7 @@ public class MainActivity extends AppCompatActivity {
                                 .build())
                 .setRunningMode(RunningMode.LIVE_STREAM)
                 .setResultListener(this::onHandResult)
+                .setErrorListener(error -> onLandmarkerError(WARMUP_HAND, error))
                 .setNumHands(2)
                 .build();
 
@@ -313,63 +560,30 @@ public class MainActivity extends AppCompatActivity {
                 .build();
 
         imageAnalysis.setAnalyzer(cameraExecutor, imageProxy -> {
-            if (poseLandmarker == null || faceLandmarker == null || handLandmarker == null) {
-                imageProxy.close();
-                return;
-            }
-
-            int rotationDegrees = imageProxy.getImageInfo().getRotationDegrees();
+            FramePipeline.Frame frame;
             try {
-                android.graphics.Bitmap bitmap =
-                        ImageUtils.imageProxyToBitmap(imageProxy, rotationDegrees);
-                if (bitmap == null) {
-                    imageProxy.close();
-                    return;
-                }
-                if (webRtcStreamer != null) {
-                    android.graphics.Bitmap streamBitmap = bitmap.copy(android.graphics.Bitmap.Config.ARGB_8888, true);
-                    if (streamBitmap != null) {
-                        Canvas canvas = new Canvas(streamBitmap);
-                        overlayView.drawOverlay(canvas, streamBitmap.getWidth(), streamBitmap.getHeight(), false);
-                    }
-
-                    org.webrtc.JavaI420Buffer i420Buffer = streamBitmap == null
-                            ? ImageUtils.imageProxyToI420(imageProxy)
-                            : ImageUtils.bitmapToI420(streamBitmap);
-                    if (i420Buffer != null) {
-                        int frameRotation = streamBitmap == null ? rotationDegrees : 0;
-                        VideoFrame frame = new VideoFrame(i420Buffer, frameRotation, System.nanoTime());
-                        webRtcStreamer.sendFrame(frame);
-                        frame.release();
-                    }
-                }
-                MPImage mpImage = new BitmapImageBuilder(bitmap).build();
-
-                ImageProcessingOptions imageProcessingOptions =
-                        ImageProcessingOptions.builder()
-                                .setRotationDegrees(0)
-                                .build();
-
-                long timestamp = System.currentTimeMillis();
-                if (currentMode == RenderMode.POSE) {
-                    poseLandmarker.detectAsync(mpImage, imageProcessingOptions, timestamp);
-                } else if (currentMode == RenderMode.POSE_HAND) {
-                    poseLandmarker.detectAsync(mpImage, imageProcessingOptions, timestamp);
-                    handLandmarker.detectAsync(mpImage, imageProcessingOptions, timestamp);
-                } else if (currentMode == RenderMode.FACE) {
-                    faceLandmarker.detectAsync(mpImage, imageProcessingOptions, timestamp);
-                } else {
-                    handLandmarker.detectAsync(mpImage, imageProcessingOptions, timestamp);
-                }
+                frame = captureFrame(imageProxy);
             } catch (Exception ignored) {
+                return;
+            } finally {
                 imageProxy.close();
+            }
+            if (frame == null) {
                 return;
             }
-            imageProxy.close();
+            framePipeline.recordCaptured();
+            inferenceStage.offer(frame);
+            if (webRtcStreamer != null) {
+                streamStage.offer(frame);
+            }
+            frame.release();
+            logPipelineStats();
         });
 
         boolean isFront = cameraSelector == CameraSelector.DEFAULT_FRONT_CAMERA;
         overlayView.setMirror(isFront);
+        poseRoiTracker.reset();
+        handRoiPlanner.reset();
 
         cameraProvider.unbindAll();
         cameraProvider.bindToLifecycle(
@@ -380,6 +594,201 @@ public class MainActivity extends AppCompatActivity {
         );
     }
 
+    private ImageProcessingOptions imageProcessingOptionsFor(int rotationDegrees) {
+        ImageProcessingOptions options = imageProcessingOptions;
+        if (options == null || imageProcessingRotation != rotationDegrees) {
+            options = ImageProcessingOptions.builder()
+                    .setRotationDegrees(rotationDegrees)
+                    .build();
+            imageProcessingOptions = options;
+            imageProcessingRotation = rotationDegrees;
+        }
+        return options;
+    }
+
+    private FramePipeline.Frame captureFrame(ImageProxy imageProxy) {
+        FramePool.PooledBuffer pixels = ImageUtils.imageProxyToRgbaBuffer(imageProxy, framePool);
+        if (pixels == null) {
+            return null;
+        }
+        return new FramePipeline.Frame(
+                pixels,
+                imageProxy.getWidth(),
+                imageProxy.getHeight(),
+                imageProxy.getImageInfo().getRotationDegrees(),
+                System.currentTimeMillis());
+    }
+
+    private void submitInference(FramePipeline.Frame frame) {
+        if (!landmarkersReady) {
+            return;
+        }
+
+        RenderMode submitMode = currentMode;
+        int expectedCallbacks = submitMode == RenderMode.POSE_HAND ? 2 : 1;
+        if (!inferenceScheduler.trySubmit(frame.getTimestampMs(), expectedCallbacks)) {
+            return;
+        }
+        inferenceStage.setTargetFps(inferenceScheduler.getTargetFps());
+
+        FramePool.PooledBitmap analysisFrame = null;
+        FramePool.PooledBuffer roiBuffer = null;
+        FramePool.PooledBuffer handBuffer = null;
+        try {
+            MPImage mpImage;
+            MPImage poseImage;
+            MPImage handImage;
+            int inferenceRotation;
+            if (inferenceInput == InferenceInput.RGBA_BUFFER) {
+                mpImage = new ByteBufferImageBuilder(
+                        frame.duplicateBuffer(),
+                        frame.getWidth(),
+                        frame.getHeight(),
+                        MPImage.IMAGE_FORMAT_RGBA).build();
+                poseImage = mpImage;
+                RoiTracker.Roi roi = null;
+                if (roiTrackingEnabled
+                        && (submitMode == RenderMode.POSE || submitMode == RenderMode.POSE_HAND)) {
+                    roi = poseRoiTracker.next(
+                            frame.getWidth(), frame.getHeight(), frame.getTimestampMs());
+                }
+                if (roi != null) {
+                    roiBuffer = ImageUtils.cropRgba(
+                            frame.getPixels(),
+                            frame.getWidth(),
+                            roi.getLeft(),
+                            roi.getTop(),
+                            roi.getWidth(),
+                            roi.getHeight(),
+                            framePool);
+                    poseImage = new ByteBufferImageBuilder(
+                            roiBuffer.getBuffer(),
+                            roi.getWidth(),
+                            roi.getHeight(),
+                            MPImage.IMAGE_FORMAT_RGBA).build();
+                }
+                handImage = mpImage;
+                if (submitMode == RenderMode.POSE_HAND) {
+                    HandRoiPlanner.Plan plan = handRoiPlanner.plan(
+                            frame.getTimestampMs() - latestPoseTimestampMs <= HAND_ROI_MAX_POSE_AGE_MS
+                                    ? latestPoseFrameLandmarks
+                                    : null,
+                            frame.getWidth(),
+                            frame.getHeight(),
+                            frame.getTimestampMs());
+                    if (plan != null) {
+                        handBuffer = plan.buildMosaic(frame.getPixels(), frame.getWidth(), framePool);
+                        handImage = new ByteBufferImageBuilder(
+                                handBuffer.getBuffer(),
+                                plan.getMosaicWidth(),
+                                plan.getMosaicHeight(),
+                                MPImage.IMAGE_FORMAT_RGBA).build();
+                    }
+                }
+                inferenceRotation = frame.getRotationDegrees();
+            } else {
+                analysisFrame = ImageUtils.rgbaBufferToBitmap(
+                        frame.getPixels(),
+                        frame.getWidth(),
+                        frame.getHeight(),
+                        frame.getRotationDegrees(),
+                        false,
+                        framePool);
+                if (analysisFrame == null) {
+                    return;
+                }
+                mpImage = new BitmapImageBuilder(analysisFrame.getBitmap()).build();
+                poseImage = mpImage;
+                handImage = mpImage;
+                inferenceRotation = 0;
+            }
+
+            inferenceRotationDegrees = inferenceRotation;
+            ImageProcessingOptions imageProcessingOptions =
+                    imageProcessingOptionsFor(inferenceRotation);
+
+            long timestamp = frame.getTimestampMs();
+            RenderMode mode = submitMode;
+            int parts = resultPartsFor(mode);
+            if (parts != 0) {
+                resultSynchronizer.expect(timestamp, parts);
+            }
+            try {
+                if (mode == RenderMode.POSE) {
+                    poseLandmarker.detectAsync(poseImage, imageProcessingOptions, timestamp);
+                } else if (mode == RenderMode.POSE_HAND) {
+                    poseLandmarker.detectAsync(poseImage, imageProcessingOptions, timestamp);
+                    handLandmarker.detectAsync(handImage, imageProcessingOptions, timestamp);
+                } else if (mode == RenderMode.FACE) {
+                    faceLandmarker.detectAsync(mpImage, imageProcessingOptions, timestamp);
+                } else {
+                    handLandmarker.detectAsync(mpImage, imageProcessingOptions, timestamp);
+                }
+            } catch (RuntimeException exception) {
+                inferenceScheduler.cancel(timestamp);
+                resultSynchronizer.cancel(timestamp);
+                throw exception;
+            }
+        } finally {
+            // detectAsync copies the pixels into its own packet, so the frame can go back now.
+            if (analysisFrame != null) {
+                analysisFrame.release();
+            }
+            if (roiBuffer != null) {
+                roiBuffer.release();
+            }
+            if (handBuffer != null) {
+                handBuffer.release();
+            }
+        }
+    }
+
+    private void composeStreamFrame(FramePipeline.Frame frame) {
+        WebRtcStreamer streamer = webRtcStreamer;
+        if (streamer == null) {
+            return;
+        }
+        FramePool.PooledBitmap streamFrame = ImageUtils.rgbaBufferToBitmap(
+                frame.getPixels(),
+                frame.getWidth(),
+                frame.getHeight(),
+                frame.getRotationDegrees(),
+                false,
+                framePool);
+        if (streamFrame == null) {
+            return;
+        }
+        android.graphics.Bitmap bitmap = streamFrame.getBitmap();
+        org.webrtc.JavaI420Buffer i420Buffer;
+        try {
+            // Inference runs slower than the stream, so this draws the latest landmarks the overlay holds.
+            streamCanvas.setBitmap(bitmap);
+            overlayView.drawOverlay(streamCanvas, bitmap.getWidth(), bitmap.getHeight(), false);
+            streamCanvas.setBitmap(null);
+            i420Buffer = ImageUtils.bitmapToI420(bitmap, framePool);
+        } finally {
+            streamFrame.release();
+        }
+        if (i420Buffer != null) {
+            VideoFrame videoFrame = new VideoFrame(i420Buffer, 0, System.nanoTime());
+            streamer.sendFrame(videoFrame);
+            videoFrame.release();
+        }
+    }
+
+    private void logPipelineStats() {
+        long now = System.currentTimeMillis();
+        if (now - lastPipelineLogTimestampMs < PIPELINE_LOG_INTERVAL_MS) {
+            return;
+        }
+        lastPipelineLogTimestampMs = now;
+        Log.d(TAG, "frame_pool hits=" + framePool.getHitCount()
+                + " misses=" + framePool.getMissCount()
+                + " outstanding=" + framePool.getOutstandingCount());
+        Log.d(TAG, framePipeline.formatStats());
+        Log.d(TAG, inferenceScheduler.formatStats());
+    }
+
     private void switchCamera() {
         if (currentCameraSelector == CameraSelector.DEFAULT_FRONT_CAMERA) {
             currentCameraSelector = CameraSelector.DEFAULT_BACK_CAMERA;
@@ -390,21 +799,78 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void onPoseResult(PoseLandmarkerResult result, MPImage inputImage) {
+        if (result != null && isWarmupResult(result.timestampMs(), WARMUP_POSE, !result.landmarks().isEmpty())) {
+            return;
+        }
+        if (result != null) {
+            inferenceScheduler.onResult(result.timestampMs());
+            if (!firstPoseResultReported) {
+                firstPoseResultReported = true;
+                long now = System.currentTimeMillis();
+                Log.i(TAG, "first pose result " + (now - createdAtMs) + " ms after launch, "
+                        + (now - result.timestampMs()) + " ms after capture");
+            }
+        }
         if (result == null || inputImage == null) {
             overlayView.clear();
             return;
         }
 
-        overlayView.setPoseResults(result, inputImage.getWidth(), inputImage.getHeight());
-        sendPoseLandmarks(result);
+        int rotation = inferenceRotationDegrees;
+        List<List<NormalizedLandmark>> frameLandmarks = result.landmarks();
+        int frameWidth = inputImage.getWidth();
+        int frameHeight = inputImage.getHeight();
+        RoiTracker.Roi roi = poseRoiTracker.take(result.timestampMs());
+        if (roi != null) {
+            frameLandmarks = LandmarkTransforms.fromCrop(
+                    frameLandmarks,
+                    roi.normalizedLeft(),
+                    roi.normalizedTop(),
+                    roi.normalizedWidth(),
+                    roi.normalizedHeight());
+            frameWidth = roi.getFrameWidth();
+            frameHeight = roi.getFrameHeight();
+        }
+        if (roiTrackingEnabled && inferenceInput == InferenceInput.RGBA_BUFFER) {
+            poseRoiTracker.update(frameLandmarks, frameWidth, frameHeight);
+        }
+        latestPoseFrameLandmarks = frameLandmarks.isEmpty() ? null : frameLandmarks.get(0);
+        latestPoseTimestampMs = result.timestampMs();
+        resultSynchronizer.offerPose(
+                result.timestampMs(),
+                LandmarkTransforms.toUpright(frameLandmarks, rotation),
+                ImageUtils.rotatedWidth(frameWidth, frameHeight, rotation),
+                ImageUtils.rotatedHeight(frameWidth, frameHeight, rotation));
+    }
+
+    private void onFusedResult(ResultSynchronizer.FusedResult result) {
+        int width = result.getImageWidth();
+        int height = result.getImageHeight();
+        if (result.getExpectedParts()
+                == (ResultSynchronizer.PART_POSE | ResultSynchronizer.PART_HANDS)) {
+            overlayView.setPoseHandResults(
+                    result.getPose(), result.getHands(), width, height, result.getTimestampMs());
+        } else if (result.hasPose()) {
+            overlayView.setPoseResults(result.getPose(), width, height, result.getTimestampMs());
+        } else if (result.hasHands()) {
+            overlayView.setHandResults(result.getHands(), width, height);
+        }
+        if (!result.hasPose()) {
+            return;
+        }
+
+        List<List<NormalizedLandmark>> landmarks = result.getPose();
+        // Every pose frame reaches the fall detector; only the label shown to the user is throttled.
+        poseAnalyticsWorker.submit(landmarks, result.getTimestampMs());
+        sendPoseLandmarks(landmarks);
         long now = System.currentTimeMillis();
         if (now - lastPoseLogTimestampMs < 1000) {
             return;
         }
         lastPoseLogTimestampMs = now;
 
-        if (!result.landmarks().isEmpty()) {
-            Log.d(TAG, formatPoseLandmarksLog(result.landmarks().get(0)));
+        if (!landmarks.isEmpty()) {
+            Log.d(TAG, formatPoseLandmarksLog(landmarks.get(0)));
         }
     }
 
@@ -426,54 +892,150 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void onFaceResult(FaceLandmarkerResult result, MPImage inputImage) {
+        if (result != null
+                && isWarmupResult(result.timestampMs(), WARMUP_FACE, !result.faceLandmarks().isEmpty())) {
+            return;
+        }
+        if (result != null) {
+            inferenceScheduler.onResult(result.timestampMs());
+        }
         if (result == null || inputImage == null) {
             overlayView.clear();
             return;
         }
 
-        overlayView.setFaceResults(result, inputImage.getWidth(), inputImage.getHeight());
+        int rotation = inferenceRotationDegrees;
+        overlayView.setFaceResults(
+                LandmarkTransforms.toUpright(result.faceLandmarks(), rotation),
+                ImageUtils.rotatedWidth(inputImage.getWidth(), inputImage.getHeight(), rotation),
+                ImageUtils.rotatedHeight(inputImage.getWidth(), inputImage.getHeight(), rotation));
     }
 
     private void onHandResult(HandLandmarkerResult result, MPImage inputImage) {
+        if (result != null && isWarmupResult(result.timestampMs(), WARMUP_HAND, !result.landmarks().isEmpty())) {
+            return;
+        }
+        if (result != null) {
+            inferenceScheduler.onResult(result.timestampMs());
+        }
         if (result == null || inputImage == null) {
             overlayView.clear();
             return;
         }
 
-        overlayView.setHandResults(result, inputImage.getWidth(), inputImage.getHeight());
+        int rotation = inferenceRotationDegrees;
+        List<List<NormalizedLandmark>> frameHands = result.landmarks();
+        int frameWidth = inputImage.getWidth();
+        int frameHeight = inputImage.getHeight();
+        if (handRoiPlanner.take(result.timestampMs(), takenHandPlan)) {
+            frameHands = takenHandPlan.toFrame(frameHands);
+            frameWidth = takenHandPlan.getFrameWidth();
+            frameHeight = takenHandPlan.getFrameHeight();
+        }
+        resultSynchronizer.offerHands(
+                result.timestampMs(),
+                LandmarkTransforms.toUpright(frameHands, rotation),
+                ImageUtils.rotatedWidth(frameWidth, frameHeight, rotation),
+                ImageUtils.rotatedHeight(frameWidth, frameHeight, rotation));
+    }
+
+    private static int resultPartsFor(RenderMode mode) {
+        if (mode == RenderMode.POSE) {
+            return ResultSynchronizer.PART_POSE;
+        } else if (mode == RenderMode.POSE_HAND) {
+            return ResultSynchronizer.PART_POSE | ResultSynchronizer.PART_HANDS;
+        } else if (mode == RenderMode.HAND) {
+            return ResultSynchronizer.PART_HANDS;
+        }
+        return 0;
+    }
+
+    private void handleLocalFallEvent(int personId, int event, long timestampMs) {
+        if (event == PoseAnalyticsEngine.EVENT_FALL_DETECTED) {
+            Log.w(TAG, "fall detected person=" + personId + " at " + timestampMs);
+            String label = getString(R.string.pose_fallen);
+            overlayView.setPoseLabel(label);
+            if (poseClassText != null) {
+                runOnUiThread(() -> poseClassText.setText(label));
+            }
+        } else if (event == PoseAnalyticsEngine.EVENT_FALL_RECOVERED) {
+            Log.i(TAG, "fall recovered person=" + personId + " at " + timestampMs);
+        }
     }
 
-    private void updatePoseClassification(PoseLandmarkerResult result) {
+    private void handleLocalPersonLabels(int[] personIds, int[] labels, int count) {
+        WebRtcStreamer streamer = webRtcStreamer;
+        if (streamer != null) {
+            streamer.sendPersonLabels(personIds, labels, count);
+        }
         if (poseClassText == null) {
             return;
         }
         if (currentMode != RenderMode.POSE && currentMode != RenderMode.POSE_HAND) {
-            overlayView.setPoseLabel("");
             return;
         }
-        if (result.landmarks().isEmpty()) {
-            overlayView.setPoseLabel("");
-            runOnUiThread(this::clearPoseClassText);
+        if (poseLabelClassifier.getBackend() == PoseLabelClassifier.Backend.SERVER) {
             return;
         }
-        long now = System.currentTimeMillis();
-        if (now - lastClassificationTimestampMs < CLASSIFY_INTERVAL_MS) {
+        lastLocalLabelTimestampMs = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            overlayPersonLabels[i] = labels[i] == PoseAnalyticsEngine.LABEL_UNKNOWN ? "" : labelText(labels[i]);
+        }
+        overlayView.setPersonLabels(personIds, overlayPersonLabels, count);
+        overlayView.setPoseLabel("");
+        String text = formatPersonLabels(personIds, labels, count);
+        if (text.isEmpty()) {
+            runOnUiThread(this::clearPoseClassText);
             return;
         }
-        lastClassificationTimestampMs = now;
-        String label = classifyPose(result.landmarks().get(0));
-        if (label.equals(getString(R.string.pose_unknown))) {
-            overlayView.setPoseLabel("");
-        } else {
-            overlayView.setPoseLabel(label);
+        runOnUiThread(() -> poseClassText.setText(text));
+    }
+
+    private String formatPersonLabels(int[] personIds, int[] labels, int count) {
+        if (count == 1) {
+            return labels[0] == PoseAnalyticsEngine.LABEL_UNKNOWN ? "" : labelText(labels[0]);
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (labels[i] == PoseAnalyticsEngine.LABEL_UNKNOWN) {
+                continue;
+            }
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            builder.append(personIds[i]).append(": ").append(labelText(labels[i]));
+        }
+        return builder.toString();
+    }
+
+    private String labelText(int label) {
+        switch (label) {
+            case PoseAnalyticsEngine.LABEL_STANDING:
+                return getString(R.string.pose_standing);
+            case PoseAnalyticsEngine.LABEL_SITTING:
+                return getString(R.string.pose_sitting);
+            case PoseAnalyticsEngine.LABEL_LYING:
+                return getString(R.string.pose_lying);
+            case PoseAnalyticsEngine.LABEL_FALLEN:
+                return getString(R.string.pose_fallen);
+            case PoseAnalyticsEngine.LABEL_CROUCHING:
+                return getString(R.string.pose_crouching);
+            case PoseAnalyticsEngine.LABEL_WALKING:
+                return getString(R.string.pose_walking);
+            default:
+                return getString(R.string.pose_unknown);
         }
-        runOnUiThread(() -> poseClassText.setText(label));
     }
 
     private void handleServerPoseLabel(String label) {
         if (poseClassText == null) {
             return;
         }
+        // Server labels cost a network round trip; they are only a fallback while local labels are missing.
+        if (poseLabelClassifier.getBackend() != PoseLabelClassifier.Backend.SERVER
+                && System.currentTimeMillis() - lastLocalLabelTimestampMs < LOCAL_LABEL_HOLD_MS) {
+            return;
+        }
         runOnUiThread(() -> {
             if (currentMode != RenderMode.POSE && currentMode != RenderMode.POSE_HAND) {
                 clearPoseClassText();
@@ -585,8 +1147,8 @@ public class MainActivity extends AppCompatActivity {
         openCommandHistory();
     }
 
-    private void sendPoseLandmarks(PoseLandmarkerResult result) {
-        if (webRtcStreamer == null || result == null || result.landmarks().isEmpty()) {
+    private void sendPoseLandmarks(List<List<NormalizedLandmark>> landmarks) {
+        if (webRtcStreamer == null || landmarks == null || landmarks.isEmpty()) {
             return;
         }
         long now = System.currentTimeMillis();
@@ -594,315 +1156,7 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
         lastPoseSendTimestampMs = now;
-        webRtcStreamer.sendPoseLandmarks(result.landmarks().get(0));
-    }
-
-    private String classifyPose(List<NormalizedLandmark> landmarks) {
-        if (landmarks == null || landmarks.size() <= 30) {
-            return getString(R.string.pose_unknown);
-        }
-        NormalizedLandmark leftShoulder = landmarks.get(11);
-        NormalizedLandmark rightShoulder = landmarks.get(12);
-        NormalizedLandmark leftHip = landmarks.get(23);
-        NormalizedLandmark rightHip = landmarks.get(24);
-        NormalizedLandmark leftKnee = landmarks.get(25);
-        NormalizedLandmark rightKnee = landmarks.get(26);
-        NormalizedLandmark leftAnkle = landmarks.get(27);
-        NormalizedLandmark rightAnkle = landmarks.get(28);
-        NormalizedLandmark leftHeel = landmarks.get(29);
-        NormalizedLandmark rightHeel = landmarks.get(30);
-
-        float shoulderX = (leftShoulder.x() + rightShoulder.x()) * 0.5f;
-        float shoulderY = (leftShoulder.y() + rightShoulder.y()) * 0.5f;
-        float hipX = (leftHip.x() + rightHip.x()) * 0.5f;
-        float hipY = (leftHip.y() + rightHip.y()) * 0.5f;
-        float kneeY = (leftKnee.y() + rightKnee.y()) * 0.5f;
-        float heelX = (leftHeel.x() + rightHeel.x()) * 0.5f;
-        float heelY = (leftHeel.y() + rightHeel.y()) * 0.5f;
-
-        float torsoDx = Math.abs(shoulderX - hipX);
-        float torsoDy = Math.abs(shoulderY - hipY);
-        float torsoAngle = (float) Math.toDegrees(Math.atan2(torsoDx, torsoDy));
-        float comX = (shoulderX + hipX) * 0.5f;
-        float comY = (shoulderY + hipY) * 0.5f;
-        float[] bbox = computeBoundingBox(landmarks);
-        float aspectRatio = computeAspectRatio(bbox);
-        float bboxHeight = Math.max(bbox[3] - bbox[2], 1e-6f);
-        long now = System.currentTimeMillis();
-        if (updateFallState(comX, comY, torsoAngle, aspectRatio, bboxHeight, now)) {
-            return getString(R.string.pose_fallen);
-        }
-        if (torsoDx > torsoDy * 1.2f) {
-            return getString(R.string.pose_lying);
-        }
-
-        float leftKneeAngle = calculateAngle(leftHip, leftKnee, leftAnkle);
-        float rightKneeAngle = calculateAngle(rightHip, rightKnee, rightAnkle);
-        float kneeAngle = (leftKneeAngle + rightKneeAngle) * 0.5f;
-        float hipKneeDelta = Math.abs(hipY - kneeY);
-        float hipToHeel = Math.abs(heelY - hipY);
-        float hipHeelDeltaX = Math.abs(hipX - heelX);
-        boolean crouchReliable = isConfident(leftHip, CROUCH_MIN_CONFIDENCE)
-                && isConfident(rightHip, CROUCH_MIN_CONFIDENCE)
-                && isConfident(leftKnee, CROUCH_MIN_CONFIDENCE)
-                && isConfident(rightKnee, CROUCH_MIN_CONFIDENCE)
-                && isConfident(leftHeel, CROUCH_MIN_CONFIDENCE)
-                && isConfident(rightHeel, CROUCH_MIN_CONFIDENCE);
-        boolean tightCrouch = crouchReliable
-                && kneeAngle < CROUCH_KNEE_ANGLE_THRESHOLD
-                && hipKneeDelta < CROUCH_HIP_OFFSET
-                && hipHeelDeltaX < CROUCH_HIP_HEEL_X_THRESHOLD;
-        boolean lowHipCrouch = crouchReliable
-                && kneeAngle < CROUCH_KNEE_ANGLE_SOFT
-                && hipToHeel < CROUCH_HIP_HEEL_THRESHOLD
-                && hipKneeDelta < CROUCH_HIP_KNEE_SOFT
-                && hipHeelDeltaX < CROUCH_HIP_HEEL_X_THRESHOLD;
-        if (tightCrouch || lowHipCrouch) {
-            return getString(R.string.pose_crouching);
-        }
-        if (kneeAngle < SIT_KNEE_ANGLE_THRESHOLD) {
-            return getString(R.string.pose_sitting);
-        }
-        if (isWalking(landmarks, kneeAngle)) {
-            return getString(R.string.pose_walking);
-        }
-        return getString(R.string.pose_standing);
-    }
-
-    private boolean updateFallState(
-            float comX,
-            float comY,
-            float torsoAngle,
-            float aspectRatio,
-            float bboxHeight,
-            long now) {
-        float normHeight = Math.max(bboxHeight, FALL_MIN_BBOX_HEIGHT);
-        float downSpeed = 0f;
-        float speed = 0f;
-        if (lastFallSampleTimestampMs > 0) {
-            float dt = (now - lastFallSampleTimestampMs) / 1000f;
-            if (dt > 0f) {
-                float dx = comX - lastComX;
-                float dy = comY - lastComY;
-                speed = (float) Math.hypot(dx, dy) / dt / normHeight;
-                downSpeed = dy / dt / normHeight;
-            }
-        }
-        lastComX = comX;
-        lastComY = comY;
-        lastFallSampleTimestampMs = now;
-
-        recordFallHistory(comY, downSpeed, torsoAngle, aspectRatio);
-        boolean upright = torsoAngle < FALL_UPRIGHT_ANGLE && aspectRatio > FALL_UPRIGHT_ASPECT;
-        boolean lying = torsoAngle > FALL_LYING_ANGLE && aspectRatio < FALL_LYING_ASPECT;
-        boolean fallImpulse = isFallImpulse(comY, normHeight);
-
-        switch (fallState) {
-            case IDLE:
-                if (upright) {
-                    uprightFrames += 1;
-                    if (uprightFrames >= FALL_UPRIGHT_FRAMES) {
-                        fallState = FallState.ARMED;
-                    }
-                } else {
-                    uprightFrames = 0;
-                }
-                break;
-            case ARMED:
-                if (fallImpulse) {
-                    fallState = FallState.POST_FALL;
-                    postFrames = 0;
-                    postTimeoutFrames = 0;
-                }
-                if (!upright) {
-                    uprightFrames = 0;
-                }
-                break;
-            case POST_FALL:
-                if (lying) {
-                    postFrames += 1;
-                    if (speed < FALL_STILL_SPEED_THRESHOLD) {
-                        postStillFrames += 1;
-                    } else {
-                        postStillFrames = 0;
-                    }
-                    postTimeoutFrames = 0;
-                } else {
-                    postFrames = 0;
-                    postStillFrames = 0;
-                    postTimeoutFrames += 1;
-                }
-                if (postFrames >= FALL_POST_FRAMES && postStillFrames >= FALL_POST_STILL_FRAMES) {
-                    fallState = FallState.FALLEN;
-                    recoveryFrames = 0;
-                } else if (postTimeoutFrames >= FALL_POST_TIMEOUT_FRAMES) {
-                    resetFallState();
-                }
-                break;
-            case FALLEN:
-                if (upright) {
-                    recoveryFrames += 1;
-                    if (recoveryFrames >= FALL_RECOVERY_FRAMES) {
-                        resetFallState();
-                    }
-                } else {
-                    recoveryFrames = 0;
-                }
-                break;
-            default:
-                break;
-        }
-
-        return fallState == FallState.FALLEN;
-    }
-
-    private void recordFallHistory(
-            float comY,
-            float downSpeed,
-            float torsoAngle,
-            float aspectRatio) {
-        comYHistory[fallHistoryIndex] = comY;
-        downSpeedHistory[fallHistoryIndex] = downSpeed;
-        angleHistory[fallHistoryIndex] = torsoAngle;
-        aspectHistory[fallHistoryIndex] = aspectRatio;
-        fallHistoryIndex = (fallHistoryIndex + 1) % FALL_IMPULSE_FRAMES;
-        if (fallHistoryCount < FALL_IMPULSE_FRAMES) {
-            fallHistoryCount += 1;
-        }
-    }
-
-    private boolean isFallImpulse(float comY, float normHeight) {
-        if (fallHistoryCount < FALL_IMPULSE_FRAMES) {
-            return false;
-        }
-        float minComY = comYHistory[0];
-        float minAngle = angleHistory[0];
-        float maxAngle = angleHistory[0];
-        float minAspect = aspectHistory[0];
-        float maxAspect = aspectHistory[0];
-        float maxDownSpeed = downSpeedHistory[0];
-        for (int i = 1; i < fallHistoryCount; i++) {
-            minComY = Math.min(minComY, comYHistory[i]);
-            minAngle = Math.min(minAngle, angleHistory[i]);
-            maxAngle = Math.max(maxAngle, angleHistory[i]);
-            minAspect = Math.min(minAspect, aspectHistory[i]);
-            maxAspect = Math.max(maxAspect, aspectHistory[i]);
-            maxDownSpeed = Math.max(maxDownSpeed, downSpeedHistory[i]);
-        }
-        float hipDrop = (comY - minComY) / normHeight;
-        float angleChange = maxAngle - minAngle;
-        float aspectChange = maxAspect - minAspect;
-        return hipDrop > FALL_HIP_DROP_THRESHOLD
-                && maxDownSpeed > FALL_DOWN_SPEED_THRESHOLD
-                && angleChange > FALL_ANGLE_CHANGE_THRESHOLD
-                && aspectChange > FALL_ASPECT_CHANGE_THRESHOLD;
-    }
-
-    private void resetFallState() {
-        fallState = FallState.IDLE;
-        uprightFrames = 0;
-        postFrames = 0;
-        postStillFrames = 0;
-        postTimeoutFrames = 0;
-        recoveryFrames = 0;
-    }
-
-    private float[] computeBoundingBox(List<NormalizedLandmark> landmarks) {
-        float minX = 1f;
-        float maxX = 0f;
-        float minY = 1f;
-        float maxY = 0f;
-        for (NormalizedLandmark landmark : landmarks) {
-            if (landmark == null) {
-                continue;
-            }
-            float x = landmark.x();
-            float y = landmark.y();
-            minX = Math.min(minX, x);
-            maxX = Math.max(maxX, x);
-            minY = Math.min(minY, y);
-            maxY = Math.max(maxY, y);
-        }
-        return new float[]{minX, maxX, minY, maxY};
-    }
-
-    private float computeAspectRatio(float[] bbox) {
-        float width = Math.max(bbox[1] - bbox[0], 1e-6f);
-        float height = Math.max(bbox[3] - bbox[2], 1e-6f);
-        return height / width;
-    }
-
-    private boolean isWalking(List<NormalizedLandmark> landmarks, float kneeAngle) {
-        if (landmarks.size() <= 28 || kneeAngle < 150f) {
-            return false;
-        }
-        NormalizedLandmark leftAnkle = landmarks.get(27);
-        NormalizedLandmark rightAnkle = landmarks.get(28);
-        long now = System.currentTimeMillis();
-        if (lastAnkleTimestampMs == 0) {
-            lastAnkleTimestampMs = now;
-            lastLeftAnkleX = leftAnkle.x();
-            lastLeftAnkleY = leftAnkle.y();
-            lastRightAnkleX = rightAnkle.x();
-            lastRightAnkleY = rightAnkle.y();
-            return false;
-        }
-        long deltaMs = now - lastAnkleTimestampMs;
-        if (deltaMs <= 0) {
-            return false;
-        }
-        float leftMove = distance(leftAnkle.x(), leftAnkle.y(), lastLeftAnkleX, lastLeftAnkleY);
-        float rightMove = distance(rightAnkle.x(), rightAnkle.y(), lastRightAnkleX, lastRightAnkleY);
-        float avgMove = (leftMove + rightMove) * 0.5f;
-        float speed = avgMove / (deltaMs / 1000f);
-        lastAnkleTimestampMs = now;
-        lastLeftAnkleX = leftAnkle.x();
-        lastLeftAnkleY = leftAnkle.y();
-        lastRightAnkleX = rightAnkle.x();
-        lastRightAnkleY = rightAnkle.y();
-        return speed > WALKING_SPEED_THRESHOLD;
-    }
-
-    private float distance(float x1, float y1, float x2, float y2) {
-        float dx = x1 - x2;
-        float dy = y1 - y2;
-        return (float) Math.sqrt(dx * dx + dy * dy);
-    }
-
-    private boolean isConfident(NormalizedLandmark landmark, float threshold) {
-        if (landmark == null) {
-            return false;
-        }
-        float visibility = 0f;
-        float presence = 0f;
-        java.util.Optional<Float> visibilityOpt = landmark.visibility();
-        java.util.Optional<Float> presenceOpt = landmark.presence();
-        if (visibilityOpt != null && visibilityOpt.isPresent()) {
-            visibility = visibilityOpt.get();
-        }
-        if (presenceOpt != null && presenceOpt.isPresent()) {
-            presence = presenceOpt.get();
-        }
-        return Math.max(visibility, presence) >= threshold;
-    }
-
-    private float calculateAngle(
-            NormalizedLandmark first,
-            NormalizedLandmark mid,
-            NormalizedLandmark last) {
-        float ax = first.x() - mid.x();
-        float ay = first.y() - mid.y();
-        float bx = last.x() - mid.x();
-        float by = last.y() - mid.y();
-        float dot = ax * bx + ay * by;
-        float magA = (float) Math.sqrt(ax * ax + ay * ay);
-        float magB = (float) Math.sqrt(bx * bx + by * by);
-        if (magA < 1e-6f || magB < 1e-6f) {
-            return 180f;
-        }
-        float cosine = dot / (magA * magB);
-        cosine = Math.max(-1f, Math.min(1f, cosine));
-        return (float) Math.toDegrees(Math.acos(cosine));
+        webRtcStreamer.sendPoseLandmarks(landmarks.get(0));
     }
 
     @Override
@@ -911,15 +1165,13 @@ public class MainActivity extends AppCompatActivity {
         if (cameraExecutor != null) {
             cameraExecutor.shutdown();
         }
-        if (poseLandmarker != null) {
-            poseLandmarker.close();
-        }
-        if (faceLandmarker != null) {
-            faceLandmarker.close();
-        }
-        if (handLandmarker != null) {
-            handLandmarker.close();
-        }
+        framePipeline.shutdown();
+        resultSynchronizer.shutdown();
+        poseAnalyticsWorker.shutdown();
+        framePool.clear();
+        // Queued behind loadModels, so a model still loading is closed once it exists rather than leaked.
+        modelExecutor.execute(this::releaseModels);
+        modelExecutor.shutdown();
         if (webRtcStreamer != null) {
             webRtcStreamer.stop();
         }
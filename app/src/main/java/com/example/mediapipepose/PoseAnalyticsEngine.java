@@ -0,0 +1,501 @@
+package com.example.mediapipepose;
+
+public final class PoseAnalyticsEngine {
+    public static final int STRIDE = 5;
+    public static final int OFFSET_X = 0;
+    public static final int OFFSET_Y = 1;
+    public static final int OFFSET_Z = 2;
+    public static final int OFFSET_VISIBILITY = 3;
+    public static final int OFFSET_PRESENCE = 4;
+    public static final int LANDMARK_COUNT = 33;
+    public static final int FRAME_SIZE = LANDMARK_COUNT * STRIDE;
+
+    public static final int LABEL_UNKNOWN = 0;
+    public static final int LABEL_STANDING = 1;
+    public static final int LABEL_SITTING = 2;
+    public static final int LABEL_LYING = 3;
+    public static final int LABEL_FALLEN = 4;
+    public static final int LABEL_CROUCHING = 5;
+    public static final int LABEL_WALKING = 6;
+
+    public static final int EVENT_NONE = 0;
+    public static final int EVENT_FALL_DETECTED = 1;
+    public static final int EVENT_FALL_RECOVERED = 2;
+
+    private static final int LEFT_HIP = 23;
+    private static final int RIGHT_HIP = 24;
+    private static final int LEFT_KNEE = 25;
+    private static final int RIGHT_KNEE = 26;
+    private static final int LEFT_ANKLE = 27;
+    private static final int RIGHT_ANKLE = 28;
+    private static final int LEFT_HEEL = 29;
+    private static final int RIGHT_HEEL = 30;
+
+    private static final float CROUCH_KNEE_ANGLE_THRESHOLD = 95f;
+    private static final float CROUCH_KNEE_ANGLE_SOFT = 108f;
+    private static final float SIT_KNEE_ANGLE_THRESHOLD = 140f;
+    private static final float CROUCH_HIP_OFFSET = 0.03f;
+    private static final float CROUCH_HIP_KNEE_SOFT = 0.05f;
+    private static final float CROUCH_HIP_HEEL_THRESHOLD = 0.18f;
+    private static final float CROUCH_MIN_CONFIDENCE = 0.6f;
+    private static final float CROUCH_HIP_HEEL_X_THRESHOLD = 0.08f;
+    private static final float WALKING_SPEED_THRESHOLD = 0.08f;
+    private static final float WALKING_MIN_KNEE_ANGLE = 150f;
+    private static final long WALKING_WINDOW_MS = 600;
+    // The old frame counts times the 200 ms cadence they were tuned for. A phase starts at 0 ms on its first
+    // qualifying frame, so at 5 fps each one now needs a frame more than the old counter did.
+    private static final long FALL_UPRIGHT_MS = 2400;
+    private static final long FALL_IMPULSE_WINDOW_MS = 2800;
+    private static final long FALL_POST_MS = 4800;
+    private static final long FALL_POST_STILL_MS = 3200;
+    private static final long FALL_POST_TIMEOUT_MS = 7200;
+    private static final long FALL_RECOVERY_MS = 3600;
+    private static final long FALL_MAX_SAMPLE_GAP_MS = 1000;
+    private static final long SPEED_SAMPLE_INTERVAL_MS = 150;
+    private static final int FALL_HISTORY_CAPACITY = 256;
+    private static final long NOT_STARTED = -1L;
+    private static final float FALL_HIP_DROP_THRESHOLD = 0.2f;
+    private static final float FALL_DOWN_SPEED_THRESHOLD = 1.0f;
+    private static final float FALL_STILL_SPEED_THRESHOLD = 0.2f;
+    private static final float FALL_MIN_BBOX_HEIGHT = 0.15f;
+    private static final float FALL_ANGLE_CHANGE_THRESHOLD = 50f;
+    private static final float FALL_ASPECT_CHANGE_THRESHOLD = 0.55f;
+    private static final float FALL_UPRIGHT_ANGLE = 22f;
+    private static final float FALL_LYING_ANGLE = 65f;
+    private static final float FALL_UPRIGHT_ASPECT = 1.4f;
+    private static final float FALL_LYING_ASPECT = 1.05f;
+    private static final float MODEL_FALL_ENTER_SCORE = 0.7f;
+    private static final float MODEL_FALL_EXIT_SCORE = 0.4f;
+    private static final long MODEL_SCORE_TIMEOUT_MS = 2000;
+
+    public enum FallState {
+        IDLE,
+        ARMED,
+        POST_FALL,
+        FALLEN
+    }
+
+    private final SlidingWindowStats comYHistory =
+            new SlidingWindowStats(FALL_IMPULSE_WINDOW_MS, FALL_HISTORY_CAPACITY);
+    private final SlidingWindowStats angleHistory =
+            new SlidingWindowStats(FALL_IMPULSE_WINDOW_MS, FALL_HISTORY_CAPACITY);
+    private final SlidingWindowStats aspectHistory =
+            new SlidingWindowStats(FALL_IMPULSE_WINDOW_MS, FALL_HISTORY_CAPACITY);
+    private final SlidingWindowStats downSpeedHistory =
+            new SlidingWindowStats(FALL_IMPULSE_WINDOW_MS, FALL_HISTORY_CAPACITY);
+    private final SlidingWindowStats ankleSpeedHistory =
+            new SlidingWindowStats(WALKING_WINDOW_MS, FALL_HISTORY_CAPACITY);
+    private long fallHistoryStartMs = NOT_STARTED;
+    private long uprightSinceMs = NOT_STARTED;
+    private long lyingSinceMs = NOT_STARTED;
+    private long stillSinceMs = NOT_STARTED;
+    private long notLyingSinceMs = NOT_STARTED;
+    private float lastComX = Float.NaN;
+    private float lastComY = Float.NaN;
+    private long lastComTimestampMs;
+    private long lastFallSampleTimestampMs;
+    private float comSpeed;
+    private float comDownSpeed;
+    private FallState fallState = FallState.IDLE;
+    private long lastAnkleTimestampMs;
+    private boolean lastWalking;
+    private float lastLeftAnkleX = Float.NaN;
+    private float lastLeftAnkleY = Float.NaN;
+    private float lastRightAnkleX = Float.NaN;
+    private float lastRightAnkleY = Float.NaN;
+    private final float[] features = new float[PoseFeatures.SIZE];
+    private boolean featuresValid;
+    private int lastLabel = LABEL_UNKNOWN;
+    private int thresholdLabel = LABEL_UNKNOWN;
+    private int lastEvent = EVENT_NONE;
+    private boolean modelDriven;
+    private boolean modelFallen;
+    private long lastModelScoreMs;
+
+    // Frames are packed as x, y, z, visibility, presence per landmark in upright normalized coordinates.
+    public int process(float[] frame, int landmarkCount, long timestampMs) {
+        boolean wasFallen = isFallen();
+        if (modelDriven && timestampMs - lastModelScoreMs > MODEL_SCORE_TIMEOUT_MS) {
+            // The model stopped scoring this person (refilling after a gap, or unloaded); the thresholds take over.
+            modelDriven = false;
+            modelFallen = false;
+        }
+        thresholdLabel = classify(frame, landmarkCount, timestampMs);
+        // The threshold state machine keeps running under a model but no longer decides falls.
+        lastLabel = modelDriven ? modelLabel() : thresholdLabel;
+        boolean fallen = isFallen();
+        if (fallen == wasFallen) {
+            lastEvent = EVENT_NONE;
+        } else {
+            lastEvent = fallen ? EVENT_FALL_DETECTED : EVENT_FALL_RECOVERED;
+        }
+        return lastLabel;
+    }
+
+    public int getLastLabel() {
+        return lastLabel;
+    }
+
+    public int getLastEvent() {
+        return lastEvent;
+    }
+
+    // PoseFeatures of the last processed frame, or null when it could not be classified. Overwritten by the
+    // next process() call, so read it on the same thread.
+    public float[] getFeatures() {
+        return featuresValid ? features : null;
+    }
+
+    public FallState getFallState() {
+        return fallState;
+    }
+
+    // While a sequence model keeps scoring this person, its Fallen score replaces the FALL_* thresholds.
+    // Call after process() for the same frame; the event and label are updated in place.
+    public void applyModelFallScore(float score, long timestampMs) {
+        boolean wasFallen = isFallen();
+        boolean fallen = wasFallen ? score >= MODEL_FALL_EXIT_SCORE : score >= MODEL_FALL_ENTER_SCORE;
+        modelDriven = true;
+        modelFallen = fallen;
+        lastModelScoreMs = timestampMs;
+        if (fallen != wasFallen) {
+            lastEvent = fallen ? EVENT_FALL_DETECTED : EVENT_FALL_RECOVERED;
+        }
+        lastLabel = modelLabel();
+    }
+
+    public void reset() {
+        resetFallState();
+        clearFallHistory(NOT_STARTED);
+        lastFallSampleTimestampMs = 0;
+        lastAnkleTimestampMs = 0;
+        lastWalking = false;
+        ankleSpeedHistory.clear();
+        featuresValid = false;
+        lastLabel = LABEL_UNKNOWN;
+        thresholdLabel = LABEL_UNKNOWN;
+        lastEvent = EVENT_NONE;
+        modelDriven = false;
+        modelFallen = false;
+    }
+
+    // Matches the label strings the signaling server uses for its own classification.
+    public static String labelName(int label) {
+        switch (label) {
+            case LABEL_STANDING:
+                return "Standing";
+            case LABEL_SITTING:
+                return "Sitting";
+            case LABEL_LYING:
+                return "Lying";
+            case LABEL_FALLEN:
+                return "Fallen";
+            case LABEL_CROUCHING:
+                return "Crouching";
+            case LABEL_WALKING:
+                return "Walking";
+            default:
+                return "Unknown";
+        }
+    }
+
+    public static int labelFromName(String name) {
+        if (name == null) {
+            return LABEL_UNKNOWN;
+        }
+        for (int label = LABEL_STANDING; label <= LABEL_WALKING; label++) {
+            if (labelName(label).equalsIgnoreCase(name.trim())) {
+                return label;
+            }
+        }
+        return LABEL_UNKNOWN;
+    }
+
+    public static float calculateAngle(float[] frame, int first, int mid, int last) {
+        float midX = x(frame, mid);
+        float midY = y(frame, mid);
+        float ax = x(frame, first) - midX;
+        float ay = y(frame, first) - midY;
+        float bx = x(frame, last) - midX;
+        float by = y(frame, last) - midY;
+        float dot = ax * bx + ay * by;
+        float magA = (float) Math.sqrt(ax * ax + ay * ay);
+        float magB = (float) Math.sqrt(bx * bx + by * by);
+        if (magA < 1e-6f || magB < 1e-6f) {
+            return 180f;
+        }
+        float cosine = dot / (magA * magB);
+        cosine = Math.max(-1f, Math.min(1f, cosine));
+        return (float) Math.toDegrees(Math.acos(cosine));
+    }
+
+    public static boolean isConfident(float[] frame, int index, float threshold) {
+        int base = index * STRIDE;
+        return Math.max(frame[base + OFFSET_VISIBILITY], frame[base + OFFSET_PRESENCE]) >= threshold;
+    }
+
+    private int classify(float[] frame, int landmarkCount, long now) {
+        featuresValid = PoseFeatures.extract(frame, landmarkCount, features);
+        if (!featuresValid) {
+            return LABEL_UNKNOWN;
+        }
+        float[] f = features;
+        float hipX = f[PoseFeatures.HIP_X];
+        float hipY = f[PoseFeatures.HIP_Y];
+        float kneeY = f[PoseFeatures.KNEE_Y];
+        float heelX = f[PoseFeatures.HEEL_X];
+        float heelY = f[PoseFeatures.HEEL_Y];
+        float torsoDx = f[PoseFeatures.TORSO_DX];
+        float torsoDy = f[PoseFeatures.TORSO_DY];
+        float bboxHeight = Math.max(f[PoseFeatures.BBOX_MAX_Y] - f[PoseFeatures.BBOX_MIN_Y], 1e-6f);
+        if (updateFallState(
+                f[PoseFeatures.COM_X],
+                f[PoseFeatures.COM_Y],
+                f[PoseFeatures.TORSO_ANGLE],
+                f[PoseFeatures.ASPECT_RATIO],
+                bboxHeight,
+                now)) {
+            return LABEL_FALLEN;
+        }
+        if (torsoDx > torsoDy * 1.2f) {
+            return LABEL_LYING;
+        }
+
+        float kneeAngle = (f[PoseFeatures.LEFT_KNEE_ANGLE] + f[PoseFeatures.RIGHT_KNEE_ANGLE]) * 0.5f;
+        float hipKneeDelta = Math.abs(hipY - kneeY);
+        float hipToHeel = Math.abs(heelY - hipY);
+        float hipHeelDeltaX = Math.abs(hipX - heelX);
+        boolean crouchReliable = isConfident(f, LEFT_HIP)
+                && isConfident(f, RIGHT_HIP)
+                && isConfident(f, LEFT_KNEE)
+                && isConfident(f, RIGHT_KNEE)
+                && isConfident(f, LEFT_HEEL)
+                && isConfident(f, RIGHT_HEEL);
+        boolean tightCrouch = crouchReliable
+                && kneeAngle < CROUCH_KNEE_ANGLE_THRESHOLD
+                && hipKneeDelta < CROUCH_HIP_OFFSET
+                && hipHeelDeltaX < CROUCH_HIP_HEEL_X_THRESHOLD;
+        boolean lowHipCrouch = crouchReliable
+                && kneeAngle < CROUCH_KNEE_ANGLE_SOFT
+                && hipToHeel < CROUCH_HIP_HEEL_THRESHOLD
+                && hipKneeDelta < CROUCH_HIP_KNEE_SOFT
+                && hipHeelDeltaX < CROUCH_HIP_HEEL_X_THRESHOLD;
+        if (tightCrouch || lowHipCrouch) {
+            return LABEL_CROUCHING;
+        }
+        if (kneeAngle < SIT_KNEE_ANGLE_THRESHOLD) {
+            return LABEL_SITTING;
+        }
+        if (isWalking(frame, kneeAngle, now)) {
+            return LABEL_WALKING;
+        }
+        return LABEL_STANDING;
+    }
+
+    private boolean isFallen() {
+        return modelDriven ? modelFallen : fallState == FallState.FALLEN;
+    }
+
+    private int modelLabel() {
+        if (modelFallen) {
+            return LABEL_FALLEN;
+        }
+        // The thresholds' own fall verdict is overruled; the person is still on the ground.
+        return thresholdLabel == LABEL_FALLEN ? LABEL_LYING : thresholdLabel;
+    }
+
+    private boolean updateFallState(
+            float comX,
+            float comY,
+            float torsoAngle,
+            float aspectRatio,
+            float bboxHeight,
+            long now) {
+        float normHeight = Math.max(bboxHeight, FALL_MIN_BBOX_HEIGHT);
+        if (lastFallSampleTimestampMs > 0 && now - lastFallSampleTimestampMs > FALL_MAX_SAMPLE_GAP_MS) {
+            // Too little is known about what happened during a long gap to keep any window going.
+            clearFallHistory(now);
+            restartDurations();
+        }
+        lastFallSampleTimestampMs = now;
+        updateComSpeed(comX, comY, normHeight, now);
+
+        recordFallHistory(now, comY, comDownSpeed, torsoAngle, aspectRatio);
+        boolean upright = torsoAngle < FALL_UPRIGHT_ANGLE && aspectRatio > FALL_UPRIGHT_ASPECT;
+        boolean lying = torsoAngle > FALL_LYING_ANGLE && aspectRatio < FALL_LYING_ASPECT;
+        boolean fallImpulse = isFallImpulse(comY, normHeight, now);
+
+        switch (fallState) {
+            case IDLE:
+                uprightSinceMs = track(upright, uprightSinceMs, now);
+                if (elapsed(uprightSinceMs, now) >= FALL_UPRIGHT_MS) {
+                    fallState = FallState.ARMED;
+                }
+                break;
+            case ARMED:
+                if (fallImpulse) {
+                    fallState = FallState.POST_FALL;
+                    restartDurations();
+                }
+                break;
+            case POST_FALL:
+                lyingSinceMs = track(lying, lyingSinceMs, now);
+                stillSinceMs = track(lying && comSpeed < FALL_STILL_SPEED_THRESHOLD, stillSinceMs, now);
+                notLyingSinceMs = track(!lying, notLyingSinceMs, now);
+                if (elapsed(lyingSinceMs, now) >= FALL_POST_MS
+                        && elapsed(stillSinceMs, now) >= FALL_POST_STILL_MS) {
+                    fallState = FallState.FALLEN;
+                    restartDurations();
+                } else if (elapsed(notLyingSinceMs, now) >= FALL_POST_TIMEOUT_MS) {
+                    resetFallState();
+                }
+                break;
+            case FALLEN:
+                uprightSinceMs = track(upright, uprightSinceMs, now);
+                if (elapsed(uprightSinceMs, now) >= FALL_RECOVERY_MS) {
+                    resetFallState();
+                }
+                break;
+            default:
+                break;
+        }
+
+        return fallState == FallState.FALLEN;
+    }
+
+    // Speeds are measured over at least SPEED_SAMPLE_INTERVAL_MS so landmark jitter does not scale with fps.
+    private void updateComSpeed(float comX, float comY, float normHeight, long now) {
+        if (lastComTimestampMs == 0 || now - lastComTimestampMs > FALL_MAX_SAMPLE_GAP_MS) {
+            comSpeed = 0f;
+            comDownSpeed = 0f;
+        } else if (now - lastComTimestampMs >= SPEED_SAMPLE_INTERVAL_MS) {
+            float dt = (now - lastComTimestampMs) / 1000f;
+            float dx = comX - lastComX;
+            float dy = comY - lastComY;
+            comSpeed = (float) Math.hypot(dx, dy) / dt / normHeight;
+            comDownSpeed = dy / dt / normHeight;
+        } else {
+            return;
+        }
+        lastComX = comX;
+        lastComY = comY;
+        lastComTimestampMs = now;
+    }
+
+    private void recordFallHistory(
+            long now,
+            float comY,
+            float downSpeed,
+            float torsoAngle,
+            float aspectRatio) {
+        if (fallHistoryStartMs == NOT_STARTED) {
+            fallHistoryStartMs = now;
+        }
+        comYHistory.add(now, comY);
+        downSpeedHistory.add(now, downSpeed);
+        angleHistory.add(now, torsoAngle);
+        aspectHistory.add(now, aspectRatio);
+    }
+
+    private boolean isFallImpulse(float comY, float normHeight, long now) {
+        if (now - fallHistoryStartMs < FALL_IMPULSE_WINDOW_MS) {
+            return false;
+        }
+        float hipDrop = (comY - comYHistory.getMin()) / normHeight;
+        return hipDrop > FALL_HIP_DROP_THRESHOLD
+                && downSpeedHistory.getMax() > FALL_DOWN_SPEED_THRESHOLD
+                && angleHistory.getRange() > FALL_ANGLE_CHANGE_THRESHOLD
+                && aspectHistory.getRange() > FALL_ASPECT_CHANGE_THRESHOLD;
+    }
+
+    private void clearFallHistory(long now) {
+        comYHistory.clear();
+        angleHistory.clear();
+        aspectHistory.clear();
+        downSpeedHistory.clear();
+        fallHistoryStartMs = now;
+        lastComX = Float.NaN;
+        lastComY = Float.NaN;
+        lastComTimestampMs = 0;
+        comSpeed = 0f;
+        comDownSpeed = 0f;
+    }
+
+    private void resetFallState() {
+        fallState = FallState.IDLE;
+        restartDurations();
+    }
+
+    private void restartDurations() {
+        uprightSinceMs = NOT_STARTED;
+        lyingSinceMs = NOT_STARTED;
+        stillSinceMs = NOT_STARTED;
+        notLyingSinceMs = NOT_STARTED;
+    }
+
+    private static long track(boolean condition, long sinceMs, long now) {
+        if (!condition) {
+            return NOT_STARTED;
+        }
+        return sinceMs == NOT_STARTED ? now : sinceMs;
+    }
+
+    private static long elapsed(long sinceMs, long now) {
+        return sinceMs == NOT_STARTED ? -1L : now - sinceMs;
+    }
+
+    private boolean isWalking(float[] frame, float kneeAngle, long now) {
+        if (kneeAngle < WALKING_MIN_KNEE_ANGLE) {
+            return false;
+        }
+        float leftAnkleX = x(frame, LEFT_ANKLE);
+        float leftAnkleY = y(frame, LEFT_ANKLE);
+        float rightAnkleX = x(frame, RIGHT_ANKLE);
+        float rightAnkleY = y(frame, RIGHT_ANKLE);
+        if (lastAnkleTimestampMs == 0 || now - lastAnkleTimestampMs > FALL_MAX_SAMPLE_GAP_MS) {
+            lastWalking = false;
+            ankleSpeedHistory.clear();
+            lastAnkleTimestampMs = now;
+            lastLeftAnkleX = leftAnkleX;
+            lastLeftAnkleY = leftAnkleY;
+            lastRightAnkleX = rightAnkleX;
+            lastRightAnkleY = rightAnkleY;
+            return false;
+        }
+        long deltaMs = now - lastAnkleTimestampMs;
+        if (deltaMs < SPEED_SAMPLE_INTERVAL_MS) {
+            return lastWalking;
+        }
+        float leftMove = distance(leftAnkleX, leftAnkleY, lastLeftAnkleX, lastLeftAnkleY);
+        float rightMove = distance(rightAnkleX, rightAnkleY, lastRightAnkleX, lastRightAnkleY);
+        float avgMove = (leftMove + rightMove) * 0.5f;
+        float speed = avgMove / (deltaMs / 1000f);
+        lastAnkleTimestampMs = now;
+        lastLeftAnkleX = leftAnkleX;
+        lastLeftAnkleY = leftAnkleY;
+        lastRightAnkleX = rightAnkleX;
+        lastRightAnkleY = rightAnkleY;
+        // Averaging over a short window keeps a single jittery interval from toggling the label.
+        ankleSpeedHistory.add(now, speed);
+        lastWalking = ankleSpeedHistory.getMean() > WALKING_SPEED_THRESHOLD;
+        return lastWalking;
+    }
+
+    private static boolean isConfident(float[] features, int index) {
+        return features[PoseFeatures.CONFIDENCE_OFFSET + index] >= CROUCH_MIN_CONFIDENCE;
+    }
+
+    private static float distance(float x1, float y1, float x2, float y2) {
+        float dx = x1 - x2;
+        float dy = y1 - y2;
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private static float x(float[] frame, int index) {
+        return frame[index * STRIDE + OFFSET_X];
+    }
+
+    private static float y(float[] frame, int index) {
+        return frame[index * STRIDE + OFFSET_Y];
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.mediapipepose;
+
+import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public final class PoseAnalyticsWorker {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    public interface Listener {
+        // Called on the analytics thread for every fall transition, without throttling.
+        void onFallEvent(int personId, int event, long timestampMs);
+
+        // Called on the analytics thread at most once per label interval, or when any label changes.
+        // The arrays are reused; copy what you need before returning.
+        void onPersonLabels(int[] personIds, int[] labels, int count, long timestampMs);
+
+        // Called on the analytics thread for every frame. frameIndexes[i] is the position in the submitted pose
+        // list of the person with personIds[i]. The arrays are reused; copy what you need before returning.
+        void onPersonsTracked(int[] personIds, int[] frameIndexes, int count, long timestampMs);
+    }
+
+    public interface Classifier {
+        // Called on the analytics thread only when labels are about to be published. Entry i of personIds,
+        // heuristicLabels and outLabels belongs to the PoseFeatures vector features[order[i]], which is null
+        // when the engine could not classify that frame; all people arrive in one call.
+        void classify(
+                float[][] features,
+                int[] order,
+                int[] personIds,
+                int[] heuristicLabels,
+                int count,
+                int[] outLabels);
+    }
+
+    private static final class Slot {
+        final AtomicLong sequence;
+        final float[][] frames = new float[PoseTracker.MAX_PEOPLE][PoseAnalyticsEngine.FRAME_SIZE];
+        final int[] landmarkCounts = new int[PoseTracker.MAX_PEOPLE];
+        int personCount;
+        long timestampMs;
+
+        Slot(long sequence) {
+            this.sequence = new AtomicLong(sequence);
+        }
+    }
+
+    private final PoseTracker tracker = new PoseTracker();
+    private final PoseTracker.Track[] assigned = new PoseTracker.Track[PoseTracker.MAX_PEOPLE];
+    private final int[] personIds = new int[PoseTracker.MAX_PEOPLE];
+    private final int[] labels = new int[PoseTracker.MAX_PEOPLE];
+    private final int[] events = new int[PoseTracker.MAX_PEOPLE];
+    private final int[] frameIndexes = new int[PoseTracker.MAX_PEOPLE];
+    // Per detection, the engine's feature vector for that frame; computed once and shared with the models.
+    private final float[][] featureRows = new float[PoseTracker.MAX_PEOPLE][];
+    private final int[] classifiedLabels = new int[PoseTracker.MAX_PEOPLE];
+    private final int[] publishedIds = new int[PoseTracker.MAX_PEOPLE];
+    private final int[] publishedLabels = new int[PoseTracker.MAX_PEOPLE];
+    private int publishedCount = -1;
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final Listener listener;
+    private final long labelIntervalMs;
+    private final Thread thread;
+    private long head;
+    private long lastLabelTimestampMs;
+    private volatile boolean running = true;
+    private volatile Classifier classifier;
+    private volatile PoseSequenceClassifier sequenceClassifier;
+
+    public PoseAnalyticsWorker(long labelIntervalMs, Listener listener) {
+        this(DEFAULT_CAPACITY, labelIntervalMs, listener);
+    }
+
+    public PoseAnalyticsWorker(int capacity, long labelIntervalMs, Listener listener) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot(i);
+        }
+        this.mask = size - 1;
+        this.labelIntervalMs = labelIntervalMs;
+        this.listener = listener;
+        this.thread = new Thread(this::run, "pose-analytics");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // Safe to call from any callback thread; copies the landmarks so the caller keeps ownership.
+    public boolean submit(List<List<NormalizedLandmark>> poses, long timestampMs) {
+        Slot slot;
+        long position;
+        while (true) {
+            position = tail.get();
+            slot = slots[(int) (position & mask)];
+            long sequence = slot.sequence.get();
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (sequence < position) {
+                // The analytics thread is a full ring behind; dropping beats blocking a MediaPipe callback.
+                droppedCount.incrementAndGet();
+                return false;
+            }
+        }
+        int count = 0;
+        if (poses != null) {
+            for (int i = 0; i < poses.size() && count < PoseTracker.MAX_PEOPLE; i++) {
+                int landmarkCount = LandmarkTransforms.pack(poses.get(i), slot.frames[count]);
+                if (landmarkCount > 0) {
+                    slot.landmarkCounts[count] = landmarkCount;
+                    count += 1;
+                }
+            }
+        }
+        slot.personCount = count;
+        slot.timestampMs = timestampMs;
+        slot.sequence.set(position + 1);
+        LockSupport.unpark(thread);
+        return true;
+    }
+
+    public void setClassifier(Classifier classifier) {
+        this.classifier = classifier;
+    }
+
+    // With a sequence model set, fall detection comes from its Fallen score instead of the engine thresholds.
+    public void setSequenceClassifier(PoseSequenceClassifier sequenceClassifier) {
+        this.sequenceClassifier = sequenceClassifier;
+    }
+
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getMaxLatencyMs() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+    }
+
+    private void run() {
+        while (running) {
+            Slot slot = slots[(int) (head & mask)];
+            if (slot.sequence.get() != head + 1) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            long start = System.nanoTime();
+            long timestampMs = slot.timestampMs;
+            int count = slot.personCount;
+            tracker.update(slot.frames, slot.landmarkCounts, count, timestampMs, assigned);
+            PoseSequenceClassifier sequence = sequenceClassifier;
+            int tracked = 0;
+            for (int i = 0; i < count; i++) {
+                PoseTracker.Track track = assigned[i];
+                if (track == null) {
+                    continue;
+                }
+                PoseAnalyticsEngine engine = track.getEngine();
+                engine.process(slot.frames[i], slot.landmarkCounts[i], timestampMs);
+                featureRows[i] = engine.getFeatures();
+                if (sequence != null && featureRows[i] != null) {
+                    applySequence(sequence, track, featureRows[i], timestampMs);
+                }
+                labels[tracked] = engine.getLastLabel();
+                events[tracked] = engine.getLastEvent();
+                personIds[tracked] = track.getId();
+                frameIndexes[tracked] = i;
+                tracked += 1;
+            }
+            sortById(tracked);
+            notifyTracked(tracked, timestampMs);
+            for (int i = 0; i < tracked; i++) {
+                if (events[i] != PoseAnalyticsEngine.EVENT_NONE) {
+                    notifyFallEvent(personIds[i], events[i], timestampMs);
+                }
+            }
+            // Change detection runs on the cheap heuristic labels; the classifier only runs when publishing.
+            if (labelsChanged(tracked) || timestampMs - lastLabelTimestampMs >= labelIntervalMs) {
+                lastLabelTimestampMs = timestampMs;
+                publishedCount = tracked;
+                System.arraycopy(personIds, 0, publishedIds, 0, tracked);
+                System.arraycopy(labels, 0, publishedLabels, 0, tracked);
+                publishLabels(slot, tracked, timestampMs);
+            }
+            slot.sequence.set(head + slots.length);
+            head += 1;
+            processedCount.incrementAndGet();
+            long elapsed = System.nanoTime() - start;
+            if (elapsed > maxLatencyNanos.get()) {
+                maxLatencyNanos.set(elapsed);
+            }
+        }
+    }
+
+    private void applySequence(
+            PoseSequenceClassifier sequence, PoseTracker.Track track, float[] features, long timestampMs) {
+        float fallScore;
+        try {
+            fallScore = sequence.push(track.getId(), features, timestampMs);
+        } catch (RuntimeException error) {
+            // Keep the threshold fall detection rather than lose the analytics thread to a model failure.
+            sequenceClassifier = null;
+            return;
+        }
+        if (!Float.isNaN(fallScore)) {
+            track.getEngine().applyModelFallScore(fallScore, timestampMs);
+        }
+    }
+
+    private void publishLabels(Slot slot, int count, long timestampMs) {
+        Classifier current = classifier;
+        try {
+            if (current == null || count == 0) {
+                System.arraycopy(labels, 0, classifiedLabels, 0, count);
+            } else {
+                current.classify(featureRows, frameIndexes, personIds, labels, count, classifiedLabels);
+            }
+            listener.onPersonLabels(personIds, classifiedLabels, count, timestampMs);
+        } catch (RuntimeException ignored) {
+            // A listener failure must not stop analytics for the following frames.
+        }
+    }
+
+    private void notifyTracked(int count, long timestampMs) {
+        try {
+            listener.onPersonsTracked(personIds, frameIndexes, count, timestampMs);
+        } catch (RuntimeException ignored) {
+            // A listener failure must not stop analytics for the following frames.
+        }
+    }
+
+    private void notifyFallEvent(int personId, int event, long timestampMs) {
+        try {
+            listener.onFallEvent(personId, event, timestampMs);
+        } catch (RuntimeException ignored) {
+            // A listener failure must not stop fall detection for the following frames.
+        }
+    }
+
+    // Detection order can change between frames; ordering by ID keeps the published list stable.
+    private void sortById(int count) {
+        for (int i = 1; i < count; i++) {
+            int id = personIds[i];
+            int label = labels[i];
+            int event = events[i];
+            int frameIndex = frameIndexes[i];
+            int j = i - 1;
+            while (j >= 0 && personIds[j] > id) {
+                personIds[j + 1] = personIds[j];
+                labels[j + 1] = labels[j];
+                events[j + 1] = events[j];
+                frameIndexes[j + 1] = frameIndexes[j];
+                j -= 1;
+            }
+            personIds[j + 1] = id;
+            labels[j + 1] = label;
+            events[j + 1] = event;
+            frameIndexes[j + 1] = frameIndex;
+        }
+    }
+
+    private boolean labelsChanged(int count) {
+        if (count != publishedCount) {
+            return true;
+        }
+        for (int i = 0; i < count; i++) {
+            if (personIds[i] != publishedIds[i] || labels[i] != publishedLabels[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -9,14 +9,41 @@ import java.io.Closeable;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import org.tensorflow.lite.DataType;
 import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
 
 public class PoseClassifier implements Closeable {
+    private static final int FLOAT_BYTES = 4;
+    public static final int MAX_BATCH_SIZE = 8;
+    private static final int MAX_POOL_SIZE = 4;
+    private static final int MAX_THREADS_PER_INTERPRETER = 2;
+    // Person IDs start at 1, so 0 is free for the unkeyed single-frame calls.
+    private static final int SINGLE_FRAME_KEY = 0;
+    private static final int[] SINGLE_FRAME_KEY_ARRAY = {SINGLE_FRAME_KEY};
+    private static final int CACHE_CAPACITY = PoseTracker.MAX_PEOPLE * 2 + 1;
+    // In torso lengths, roughly 2% of body height.
+    private static final float DEFAULT_CACHE_THRESHOLD = 0.06f;
+    private static final long DEFAULT_CACHE_MAX_STALE_MS = 1000;
+    private static final float CACHE_MIN_WEIGHT = 1f;
+    // A caller parked on an empty pool wakes at least this often to notice close().
+    private static final long BORROW_CLOSE_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
     public static class Result {
         public final String label;
         public final float confidence;
@@ -27,69 +54,720 @@ public class PoseClassifier implements Closeable {
         }
     }
 
-    private final Interpreter interpreter;
+    // Reusable holder for classifyBatch; entries past getCount() are stale.
+    public static final class BatchResult {
+        private final int[] indices;
+        private final float[] confidences;
+        private int count;
+
+        public BatchResult(int capacity) {
+            this.indices = new int[capacity];
+            this.confidences = new float[capacity];
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getIndex(int position) {
+            return indices[position];
+        }
+
+        public float getConfidence(int position) {
+            return confidences[position];
+        }
+    }
+
+    // A tensor's direct buffer seen as floats. Quantized tensors hold one byte per element; values are quantized
+    // on write and dequantized on read with the tensor's own scale and zero point, so callers stay in floats.
+    private static final class TensorBuffer {
+        final ByteBuffer bytes;
+        final int elementBytes;
+        final boolean quantized;
+        private final FloatBuffer floats;
+        private final boolean unsigned;
+        private final float scale;
+        private final int zeroPoint;
+
+        TensorBuffer(Tensor tensor, int elements) {
+            DataType type = tensor.dataType();
+            if (type == DataType.FLOAT32) {
+                quantized = false;
+                unsigned = false;
+                elementBytes = FLOAT_BYTES;
+                scale = 1f;
+                zeroPoint = 0;
+            } else if (type == DataType.UINT8 || type == DataType.INT8) {
+                Tensor.QuantizationParams params = tensor.quantizationParams();
+                if (params == null || params.getScale() <= 0f) {
+                    throw new IllegalArgumentException("Quantized tensor without a scale: " + tensor.name());
+                }
+                quantized = true;
+                unsigned = type == DataType.UINT8;
+                elementBytes = 1;
+                scale = params.getScale();
+                zeroPoint = params.getZeroPoint();
+            } else {
+                throw new IllegalArgumentException("Unsupported tensor type " + type + ": " + tensor.name());
+            }
+            bytes = ByteBuffer.allocateDirect(elements * elementBytes).order(ByteOrder.nativeOrder());
+            floats = quantized ? null : bytes.asFloatBuffer();
+        }
+
+        void put(int index, float value) {
+            if (!quantized) {
+                floats.put(index, value);
+                return;
+            }
+            int level = Math.round(value / scale) + zeroPoint;
+            int min = unsigned ? 0 : Byte.MIN_VALUE;
+            int max = unsigned ? 255 : Byte.MAX_VALUE;
+            bytes.put(index, (byte) Math.max(min, Math.min(max, level)));
+        }
+
+        float get(int index) {
+            if (!quantized) {
+                return floats.get(index);
+            }
+            int level = unsigned ? bytes.get(index) & 0xFF : bytes.get(index);
+            return (level - zeroPoint) * scale;
+        }
+    }
+
+    // One interpreter and the direct buffers bound to it; only the thread that borrowed it touches it.
+    private static final class Session {
+        private final Interpreter interpreter;
+        // Native-order direct buffers let Interpreter.run copy straight into the tensors without marshalling arrays.
+        private final TensorBuffer input;
+        private final TensorBuffer output;
+        // The interpreter requires the input capacity to match the tensor exactly, so each batch size gets a view.
+        private final ByteBuffer[] inputViews;
+        private final ByteBuffer[] outputViews;
+        private final int inputSize;
+        private final int outputSize;
+        private final int maxBatchSize;
+        private int currentBatchSize;
+        private float lastConfidence;
+        private final int[] pendingRows;
+        private final int[] pendingPositions;
+        private int pendingCount;
+        private final float[] packedFrame = new float[PoseAnalyticsEngine.FRAME_SIZE];
+        private final float[] packedFeatures = new float[PoseFeatures.SIZE];
+        private final float[][] packedRows = {packedFeatures};
+        private final BatchResult singleResult = new BatchResult(1);
+
+        Session(Interpreter interpreter) {
+            this.interpreter = interpreter;
+            int[] inputShape = interpreter.getInputTensor(0).shape();
+            int[] outputShape = interpreter.getOutputTensor(0).shape();
+            this.inputSize = inputShape[inputShape.length - 1];
+            this.outputSize = outputShape[outputShape.length - 1];
+            // Only a plain [batch, features] model can be resized along its first dimension.
+            this.maxBatchSize = inputShape.length == 2 && outputShape.length == 2 ? MAX_BATCH_SIZE : 1;
+            this.currentBatchSize = inputShape.length == 2 ? inputShape[0] : 1;
+            this.input = new TensorBuffer(interpreter.getInputTensor(0), maxBatchSize * inputSize);
+            this.output = new TensorBuffer(interpreter.getOutputTensor(0), maxBatchSize * outputSize);
+            this.inputViews = views(input.bytes, inputSize * input.elementBytes, maxBatchSize);
+            this.outputViews = views(output.bytes, outputSize * output.elementBytes, maxBatchSize);
+            this.pendingRows = new int[maxBatchSize];
+            this.pendingPositions = new int[maxBatchSize];
+        }
+
+        int classifyIndex(float[] frame, int landmarkCount) {
+            if (!PoseFeatures.extract(frame, landmarkCount, packedFeatures)) {
+                return -1;
+            }
+            fillRow(0, packedFeatures);
+            run(1);
+            return bestInRow(0);
+        }
+
+        // Runs the first pendingCount queued rows as one batch and writes each to its result position.
+        void runPending(float[][] features, BatchResult result) {
+            for (int row = 0; row < pendingCount; row++) {
+                fillRow(row, features[pendingRows[row]]);
+            }
+            run(pendingCount);
+            for (int row = 0; row < pendingCount; row++) {
+                int position = pendingPositions[row];
+                result.indices[position] = bestInRow(row);
+                result.confidences[position] = lastConfidence;
+            }
+        }
+
+        boolean isQuantized() {
+            return input.quantized || output.quantized;
+        }
+
+        void runArrays(float[] features, float[][] arrayInput, float[][] arrayOutput) {
+            float[] values = arrayInput[0];
+            int size = Math.min(values.length, PoseFeatures.SIZE);
+            System.arraycopy(features, 0, values, 0, size);
+            for (int i = size; i < values.length; i++) {
+                values[i] = 0f;
+            }
+            interpreter.run(arrayInput, arrayOutput);
+        }
+
+        private void run(int batchSize) {
+            if (batchSize != currentBatchSize) {
+                interpreter.resizeInput(0, new int[] {batchSize, inputSize});
+                interpreter.allocateTensors();
+                currentBatchSize = batchSize;
+            }
+            ByteBuffer inputView = inputViews[batchSize - 1];
+            ByteBuffer outputView = outputViews[batchSize - 1];
+            inputView.rewind();
+            outputView.rewind();
+            interpreter.run(inputView, outputView);
+        }
+
+        private int bestInRow(int row) {
+            int offset = row * outputSize;
+            int bestIndex = 0;
+            float bestScore = output.get(offset);
+            for (int i = 1; i < outputSize; i++) {
+                float score = output.get(offset + i);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestIndex = i;
+                }
+            }
+            lastConfidence = bestScore;
+            return bestIndex;
+        }
+
+        // The model input is the leading inputSize entries of the PoseFeatures vector, zero-padded if longer.
+        private void fillRow(int row, float[] features) {
+            int offset = row * inputSize;
+            int size = Math.min(inputSize, PoseFeatures.SIZE);
+            for (int i = 0; i < size; i++) {
+                input.put(offset + i, features[i]);
+            }
+            for (int i = size; i < inputSize; i++) {
+                input.put(offset + i, 0f);
+            }
+        }
+
+        private static ByteBuffer[] views(ByteBuffer buffer, int rowBytes, int maxRows) {
+            ByteBuffer[] views = new ByteBuffer[maxRows];
+            for (int rows = 1; rows <= maxRows; rows++) {
+                ByteBuffer view = buffer.duplicate();
+                view.position(0);
+                view.limit(rows * rowBytes);
+                views[rows - 1] = view.slice().order(ByteOrder.nativeOrder());
+            }
+            return views;
+        }
+    }
+
+    // Policy and counters shared by every thread's ResultCache. It holds no reference back to the classifier,
+    // so a thread's cache does not keep a closed classifier alive.
+    private static final class CacheState {
+        volatile float threshold = DEFAULT_CACHE_THRESHOLD;
+        volatile long maxStaleNanos = DEFAULT_CACHE_MAX_STALE_MS * 1_000_000L;
+        volatile int policyVersion;
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong savedNanos = new AtomicLong();
+
+        synchronized void setPolicy(float threshold, long maxStaleMs) {
+            this.threshold = threshold;
+            this.maxStaleNanos = Math.max(0L, maxStaleMs) * 1_000_000L;
+            policyVersion += 1;
+        }
+    }
+
+    // Remembers the last classified features per key; a near-identical frame reuses its result instead of
+    // running the interpreter. Each calling thread has its own cache, so lookups take no lock. The analytics
+    // thread classifies every tracked person, so a person's key keeps landing in the same cache.
+    private static final class ResultCache {
+        private final CacheState state;
+        private final int[] keys = new int[CACHE_CAPACITY];
+        private final float[][] features = new float[CACHE_CAPACITY][PoseFeatures.SIZE];
+        private final int[] indices = new int[CACHE_CAPACITY];
+        private final float[] confidences = new float[CACHE_CAPACITY];
+        private final long[] storedNanos = new long[CACHE_CAPACITY];
+        private final boolean[] used = new boolean[CACHE_CAPACITY];
+        private int policyVersion;
+        private long inferenceRows;
+        private long inferenceNanos;
+
+        ResultCache(CacheState state) {
+            this.state = state;
+            this.policyVersion = state.policyVersion;
+        }
+
+        boolean lookup(int key, float[] current, long nowNanos, BatchResult result, int position) {
+            int version = state.policyVersion;
+            if (policyVersion != version) {
+                // Results cached under the old policy must not survive a policy change.
+                Arrays.fill(used, false);
+                policyVersion = version;
+            }
+            float threshold = state.threshold;
+            int slot = find(key);
+            if (threshold > 0f && slot >= 0
+                    && nowNanos - storedNanos[slot] < state.maxStaleNanos
+                    && distance(current, features[slot]) < threshold) {
+                result.indices[position] = indices[slot];
+                result.confidences[position] = confidences[slot];
+                state.hits.incrementAndGet();
+                if (inferenceRows > 0) {
+                    state.savedNanos.addAndGet(inferenceNanos / inferenceRows);
+                }
+                return true;
+            }
+            state.misses.incrementAndGet();
+            return false;
+        }
+
+        void store(int key, float[] current, int index, float confidence, long nowNanos) {
+            int slot = find(key);
+            if (slot < 0) {
+                // A new key takes a free entry, or else the one refreshed longest ago.
+                slot = 0;
+                for (int i = 0; i < CACHE_CAPACITY; i++) {
+                    if (!used[i]) {
+                        slot = i;
+                        break;
+                    }
+                    if (storedNanos[i] < storedNanos[slot]) {
+                        slot = i;
+                    }
+                }
+            }
+            used[slot] = true;
+            keys[slot] = key;
+            System.arraycopy(current, 0, features[slot], 0, PoseFeatures.SIZE);
+            indices[slot] = index;
+            confidences[slot] = confidence;
+            storedNanos[slot] = nowNanos;
+        }
+
+        void recordInference(long nanos, int rows) {
+            inferenceNanos += nanos;
+            inferenceRows += rows;
+        }
+
+        private int find(int key) {
+            for (int i = 0; i < CACHE_CAPACITY; i++) {
+                if (used[i] && keys[i] == key) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // Mean joint displacement in normalized (hip-centred, torso-length) units, weighted by the lower of the
+        // two confidences so jitter on occluded joints does not count as movement. The model only sees the
+        // normalized pose, so sliding across the image with the same posture correctly stays a hit.
+        private static float distance(float[] current, float[] cached) {
+            float total = 0f;
+            float weightSum = 0f;
+            for (int i = 0; i < PoseAnalyticsEngine.LANDMARK_COUNT; i++) {
+                float weight = Math.min(
+                        current[PoseFeatures.CONFIDENCE_OFFSET + i], cached[PoseFeatures.CONFIDENCE_OFFSET + i]);
+                if (weight <= 0f) {
+                    continue;
+                }
+                int base = PoseFeatures.NORMALIZED_OFFSET + i * PoseFeatures.COORDINATES;
+                float dx = current[base] - cached[base];
+                float dy = current[base + 1] - cached[base + 1];
+                total += weight * (float) Math.sqrt(dx * dx + dy * dy);
+                weightSum += weight;
+            }
+            if (weightSum < CACHE_MIN_WEIGHT) {
+                return Float.POSITIVE_INFINITY;
+            }
+            return total / weightSum;
+        }
+    }
+
+    // A null slot is a borrowed session; borrowing and returning are a CAS on one slot.
+    private final AtomicReferenceArray<Session> idleSessions;
+    private final ConcurrentLinkedQueue<Thread> waiters = new ConcurrentLinkedQueue<>();
+    private final int poolSize;
+    private final int labelCount;
+    private final boolean quantized;
     private final List<String> labels;
-    private final float[][] inputBuffer;
-    private final float[][] outputBuffer;
-    private final int inputSize;
+    private final CacheState cacheState = new CacheState();
+    private final ThreadLocal<ResultCache> caches = new ThreadLocal<ResultCache>() {
+        @Override
+        protected ResultCache initialValue() {
+            return new ResultCache(cacheState);
+        }
+    };
+    private volatile boolean closed;
 
-    private PoseClassifier(Interpreter interpreter, List<String> labels) {
-        this.interpreter = interpreter;
+    private PoseClassifier(Session[] sessions, List<String> labels) {
+        this.poolSize = sessions.length;
+        this.idleSessions = new AtomicReferenceArray<>(sessions);
+        this.labelCount = sessions[0].outputSize;
+        this.quantized = sessions[0].isQuantized();
         this.labels = labels;
-        int[] inputShape = interpreter.getInputTensor(0).shape();
-        int[] outputShape = interpreter.getOutputTensor(0).shape();
-        this.inputSize = inputShape[inputShape.length - 1];
-        int outputSize = outputShape[outputShape.length - 1];
-        this.inputBuffer = new float[1][inputSize];
-        this.outputBuffer = new float[1][outputSize];
     }
 
     public static PoseClassifier createFromAssets(
             Context context,
             String modelPath,
             String labelsPath) throws IOException {
+        int poolSize = defaultPoolSize();
+        return createFromAssets(context, modelPath, labelsPath, poolSize, defaultThreadCount(poolSize));
+    }
+
+    // Every interpreter in the pool reads the same memory-mapped model; only tensors and buffers are per interpreter.
+    public static PoseClassifier createFromAssets(
+            Context context,
+            String modelPath,
+            String labelsPath,
+            int poolSize,
+            int threadsPerInterpreter) throws IOException {
         AssetManager assetManager = context.getAssets();
         MappedByteBuffer modelBuffer = loadModel(assetManager, modelPath);
-        Interpreter.Options options = new Interpreter.Options();
-        options.setNumThreads(2);
-        Interpreter interpreter = new Interpreter(modelBuffer, options);
         List<String> labels = loadLabels(assetManager, labelsPath);
-        return new PoseClassifier(interpreter, labels);
+        return create(modelBuffer, labels, poolSize, threadsPerInterpreter);
     }
 
-    public synchronized Result classify(List<NormalizedLandmark> landmarks) {
+    // The model buffer must be direct (or memory-mapped) and stay untouched while the classifier is open.
+    static PoseClassifier create(
+            ByteBuffer modelBuffer,
+            List<String> labels,
+            int poolSize,
+            int threadsPerInterpreter) {
+        Interpreter.Options options = new Interpreter.Options();
+        options.setNumThreads(Math.max(1, threadsPerInterpreter));
+        Session[] sessions = new Session[Math.max(1, poolSize)];
+        try {
+            for (int i = 0; i < sessions.length; i++) {
+                sessions[i] = new Session(new Interpreter(modelBuffer, options));
+            }
+        } catch (RuntimeException error) {
+            for (Session session : sessions) {
+                if (session != null) {
+                    session.interpreter.close();
+                }
+            }
+            throw error;
+        }
+        return new PoseClassifier(sessions, labels);
+    }
+
+    public static int defaultPoolSize() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(MAX_POOL_SIZE, cores / 2));
+    }
+
+    public static int defaultThreadCount(int poolSize) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(MAX_THREADS_PER_INTERPRETER, cores / Math.max(1, poolSize)));
+    }
+
+    public Result classify(List<NormalizedLandmark> landmarks) {
         if (landmarks == null || landmarks.isEmpty()) {
             return null;
         }
+        Session session = borrow();
+        try {
+            int landmarkCount = LandmarkTransforms.pack(landmarks, session.packedFrame);
+            return classifySingle(session, session.packedFrame, landmarkCount);
+        } finally {
+            release(session);
+        }
+    }
+
+    // Goes through the result cache: a pose close enough to the previous one returns the previous result.
+    // Returns null when the frame lacks the landmarks PoseFeatures needs.
+    public Result classify(float[] frame, int landmarkCount) {
+        if (frame == null || landmarkCount <= 0) {
+            return null;
+        }
+        Session session = borrow();
+        try {
+            return classifySingle(session, frame, landmarkCount);
+        } finally {
+            release(session);
+        }
+    }
+
+    // Allocation-free, uncached path over a PoseAnalyticsEngine packed frame; use classifyBatch when the score
+    // is needed.
+    public int classifyIndex(float[] frame, int landmarkCount) {
+        if (frame == null || landmarkCount <= 0) {
+            return -1;
+        }
+        Session session = borrow();
+        try {
+            return session.classifyIndex(frame, landmarkCount);
+        } finally {
+            release(session);
+        }
+    }
+
+    // Classifies PoseFeatures vectors features[order[i]] (or features[i] when order is null) in as few
+    // interpreter runs as possible. A null vector yields index -1.
+    public void classifyBatch(float[][] features, int[] order, int count, BatchResult result) {
+        classifyBatch(features, order, null, count, result);
+    }
+
+    // keys[i] identifies the person in position i across calls; with keys set, positions whose pose barely
+    // moved since that person's last inference reuse the cached result and skip the interpreter.
+    public void classifyBatch(float[][] features, int[] order, int[] keys, int count, BatchResult result) {
+        Session session = borrow();
+        try {
+            classifyBatch(session, features, order, keys, count, result);
+        } finally {
+            release(session);
+        }
+    }
+
+    // A threshold of zero turns the cache off; maxStaleMs bounds how long a result is reused without inference.
+    public void setCachePolicy(float threshold, long maxStaleMs) {
+        cacheState.setPolicy(threshold, maxStaleMs);
+    }
+
+    public long getCacheHits() {
+        return cacheState.hits.get();
+    }
+
+    public long getCacheMisses() {
+        return cacheState.misses.get();
+    }
+
+    public float getCacheHitRatio() {
+        long hits = cacheState.hits.get();
+        long total = hits + cacheState.misses.get();
+        return total == 0 ? 0f : (float) hits / total;
+    }
+
+    // Estimated from the average measured inference time per frame at the moment of each hit.
+    public long getSavedInferenceMs() {
+        return cacheState.savedNanos.get() / 1_000_000L;
+    }
+
+    public int getLabelCount() {
+        return labelCount;
+    }
+
+    public String getLabel(int index) {
+        return labelForIndex(index);
+    }
+
+    public boolean isQuantized() {
+        return quantized;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    // Runs every pooled interpreter once per batch shape the analytics thread uses, so tensor allocation and
+    // kernel preparation happen here rather than on the first real frame. Returns the slowest first run in ms.
+    public long warmUp() {
+        float[][] rows = new float[PoseTracker.MAX_PEOPLE][PoseFeatures.SIZE];
+        BatchResult result = new BatchResult(rows.length);
+        Session[] held = new Session[poolSize];
+        long slowestNanos = 0L;
+        try {
+            // Holding each session until the end makes every borrow return a different interpreter.
+            for (int i = 0; i < poolSize; i++) {
+                held[i] = borrow();
+                long start = System.nanoTime();
+                classifyBatch(held[i], rows, null, null, 1, result);
+                slowestNanos = Math.max(slowestNanos, System.nanoTime() - start);
+                classifyBatch(held[i], rows, null, null, rows.length, result);
+                classifyBatch(held[i], rows, null, null, 1, result);
+            }
+        } finally {
+            for (Session session : held) {
+                if (session != null) {
+                    release(session);
+                }
+            }
+        }
+        return slowestNanos / 1_000_000L;
+    }
+
+    // Compares the old float[][] marshalling path with the direct-buffer path on one pooled interpreter.
+    public String benchmark(float[] frame, int landmarkCount, int iterations) {
+        float[] features = new float[PoseFeatures.SIZE];
+        if (!PoseFeatures.extract(frame, landmarkCount, features)) {
+            return "pose classifier benchmark skipped: frame has too few landmarks";
+        }
+        Session session = borrow();
+        try {
+            float[][] arrayInput = new float[1][session.inputSize];
+            float[][] arrayOutput = new float[1][session.outputSize];
+            int warmup = Math.max(1, iterations / 10);
+            float[][] batchRows = new float[PoseTracker.MAX_PEOPLE][];
+            for (int i = 0; i < batchRows.length; i++) {
+                batchRows[i] = features;
+            }
+            BatchResult batchResult = new BatchResult(batchRows.length);
+            // float[][] arrays cannot feed a quantized tensor, so that baseline only runs for float models.
+            boolean quantized = session.isQuantized();
+            for (int i = 0; i < warmup; i++) {
+                session.classifyIndex(frame, landmarkCount);
+                if (!quantized) {
+                    session.runArrays(features, arrayInput, arrayOutput);
+                }
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations && !quantized; i++) {
+                PoseFeatures.extract(frame, landmarkCount, features);
+                session.runArrays(features, arrayInput, arrayOutput);
+            }
+            long arrayNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                session.classifyIndex(frame, landmarkCount);
+            }
+            long directNanos = System.nanoTime() - start;
+            for (int i = 0; i < warmup; i++) {
+                classifyBatch(session, batchRows, null, null, batchRows.length, batchResult);
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                classifyBatch(session, batchRows, null, null, batchRows.length, batchResult);
+            }
+            long batchNanos = System.nanoTime() - start;
+            // Leave the interpreter at batch size one for the single-frame path.
+            session.classifyIndex(frame, landmarkCount);
+            return String.format(
+                    Locale.US,
+                    "pose classifier x%d (%s): arrays=%s direct=%.1fus per call, batch of %d=%.1fus, pool=%d",
+                    iterations,
+                    quantized ? "quantized" : "float",
+                    quantized ? "n/a" : String.format(Locale.US, "%.1fus", arrayNanos / 1000f / iterations),
+                    directNanos / 1000f / iterations,
+                    batchRows.length,
+                    batchNanos / 1000f / iterations,
+                    poolSize);
+        } finally {
+            release(session);
+        }
+    }
+
+    private Result classifySingle(Session session, float[] frame, int landmarkCount) {
+        if (!PoseFeatures.extract(frame, landmarkCount, session.packedFeatures)) {
+            return null;
+        }
+        BatchResult result = session.singleResult;
+        classifyBatch(session, session.packedRows, null, SINGLE_FRAME_KEY_ARRAY, 1, result);
+        return new Result(labelForIndex(result.indices[0]), result.confidences[0]);
+    }
+
+    private void classifyBatch(
+            Session session, float[][] features, int[] order, int[] keys, int count, BatchResult result) {
+        int total = Math.min(count, result.indices.length);
+        long nowNanos = System.nanoTime();
+        ResultCache cache = keys == null ? null : caches.get();
+        session.pendingCount = 0;
+        for (int position = 0; position < total; position++) {
+            int row = order == null ? position : order[position];
+            if (features[row] == null) {
+                result.indices[position] = -1;
+                result.confidences[position] = 0f;
+                continue;
+            }
+            if (cache != null && cache.lookup(keys[position], features[row], nowNanos, result, position)) {
+                continue;
+            }
+            session.pendingRows[session.pendingCount] = row;
+            session.pendingPositions[session.pendingCount] = position;
+            session.pendingCount += 1;
+            if (session.pendingCount == session.maxBatchSize) {
+                runPending(session, features, keys, cache, result);
+            }
+        }
+        if (session.pendingCount > 0) {
+            runPending(session, features, keys, cache, result);
+        }
+        result.count = total;
+    }
+
+    private static void runPending(
+            Session session, float[][] features, int[] keys, ResultCache cache, BatchResult result) {
+        long start = System.nanoTime();
+        session.runPending(features, result);
+        long end = System.nanoTime();
+        if (cache != null) {
+            cache.recordInference(end - start, session.pendingCount);
+            for (int row = 0; row < session.pendingCount; row++) {
+                int position = session.pendingPositions[row];
+                cache.store(keys[position], features[session.pendingRows[row]],
+                        result.indices[position], result.confidences[position], end);
+            }
+        }
+        session.pendingCount = 0;
+    }
+
+    // Lock-free while any interpreter is idle. A caller that finds the pool empty parks until a release wakes it,
+    // rather than spinning; it registers as a waiter before its last claim so a release in between is not missed.
+    private Session borrow() {
+        Session session = claimIdle();
+        if (session == null) {
+            Thread current = Thread.currentThread();
+            waiters.add(current);
+            try {
+                while ((session = claimIdle()) == null) {
+                    if (closed) {
+                        throw new IllegalStateException("PoseClassifier is closed");
+                    }
+                    LockSupport.parkNanos(this, BORROW_CLOSE_CHECK_NANOS);
+                    if (Thread.interrupted()) {
+                        current.interrupt();
+                        throw new IllegalStateException("Interrupted waiting for a pose classifier");
+                    }
+                }
+            } finally {
+                waiters.remove(current);
+            }
+        }
+        if (closed) {
+            // close() may have run while this caller waited; hand the session back so it gets closed.
+            release(session);
+            throw new IllegalStateException("PoseClassifier is closed");
+        }
+        return session;
+    }
 
-        float[] input = inputBuffer[0];
-        for (int i = 0; i < input.length; i++) {
-            input[i] = 0f;
+    // Threads start at different slots so concurrent callers rarely contend for the same one.
+    private Session claimIdle() {
+        int start = (int) (Thread.currentThread().getId() % poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            int slot = (start + i) % poolSize;
+            Session session = idleSessions.get(slot);
+            if (session != null && idleSessions.compareAndSet(slot, session, null)) {
+                return session;
+            }
         }
+        return null;
+    }
 
-        int limit = Math.min(landmarks.size() * 3, inputSize);
-        int index = 0;
-        for (NormalizedLandmark landmark : landmarks) {
-            if (index + 2 >= limit) {
+    // There are as many slots as sessions, so a returned session always finds an empty one.
+    private void release(Session session) {
+        for (int slot = 0; slot < poolSize; slot++) {
+            if (idleSessions.get(slot) == null && idleSessions.compareAndSet(slot, null, session)) {
                 break;
             }
-            input[index++] = landmark.x();
-            input[index++] = landmark.y();
-            input[index++] = landmark.z();
         }
+        for (Thread waiter : waiters) {
+            LockSupport.unpark(waiter);
+        }
+        if (closed) {
+            // close() may have swept the pool before this session came back.
+            closeIdleSessions();
+        }
+    }
 
-        interpreter.run(inputBuffer, outputBuffer);
-        float[] output = outputBuffer[0];
-        int bestIndex = 0;
-        float bestScore = output[0];
-        for (int i = 1; i < output.length; i++) {
-            if (output[i] > bestScore) {
-                bestScore = output[i];
-                bestIndex = i;
+    private void closeIdleSessions() {
+        for (int slot = 0; slot < poolSize; slot++) {
+            Session session = idleSessions.getAndSet(slot, null);
+            if (session != null) {
+                session.interpreter.close();
             }
         }
-        String label = labelForIndex(bestIndex);
-        return new Result(label, bestScore);
     }
 
     private String labelForIndex(int index) {
@@ -102,12 +780,17 @@ public class PoseClassifier implements Closeable {
         return "Class " + index;
     }
 
+    // Interpreters still borrowed are closed as their callers return them.
     @Override
     public void close() {
-        interpreter.close();
+        closed = true;
+        closeIdleSessions();
+        for (Thread waiter : waiters) {
+            LockSupport.unpark(waiter);
+        }
     }
 
-    private static MappedByteBuffer loadModel(AssetManager assetManager, String modelPath)
+    static MappedByteBuffer loadModel(AssetManager assetManager, String modelPath)
             throws IOException {
         try (AssetFileDescriptor fileDescriptor = assetManager.openFd(modelPath);
              FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
@@ -118,7 +801,7 @@ public class PoseClassifier implements Closeable {
         }
     }
 
-    private static List<String> loadLabels(AssetManager assetManager, String labelsPath)
+    static List<String> loadLabels(AssetManager assetManager, String labelsPath)
             throws IOException {
         List<String> labels = new ArrayList<>();
         try (BufferedReader reader = new BufferedReader(
@@ -0,0 +1,148 @@
+package com.example.mediapipepose;
+
+// Everything the heuristic rules and the pose models read from one packed frame (see PoseAnalyticsEngine),
+// filled in a single pass. Normalized coordinates come first so a model input is a prefix of the vector.
+public final class PoseFeatures {
+    public static final int COORDINATES = 3;
+    // x, y, z per landmark, centred on the hip midpoint and divided by the torso length.
+    public static final int NORMALIZED_OFFSET = 0;
+    public static final int NORMALIZED_SIZE = PoseAnalyticsEngine.LANDMARK_COUNT * COORDINATES;
+    // max(visibility, presence) per landmark.
+    public static final int CONFIDENCE_OFFSET = NORMALIZED_OFFSET + NORMALIZED_SIZE;
+    // Joint angles in degrees.
+    public static final int LEFT_ELBOW_ANGLE = CONFIDENCE_OFFSET + PoseAnalyticsEngine.LANDMARK_COUNT;
+    public static final int RIGHT_ELBOW_ANGLE = LEFT_ELBOW_ANGLE + 1;
+    public static final int LEFT_SHOULDER_ANGLE = LEFT_ELBOW_ANGLE + 2;
+    public static final int RIGHT_SHOULDER_ANGLE = LEFT_ELBOW_ANGLE + 3;
+    public static final int LEFT_HIP_ANGLE = LEFT_ELBOW_ANGLE + 4;
+    public static final int RIGHT_HIP_ANGLE = LEFT_ELBOW_ANGLE + 5;
+    public static final int LEFT_KNEE_ANGLE = LEFT_ELBOW_ANGLE + 6;
+    public static final int RIGHT_KNEE_ANGLE = LEFT_ELBOW_ANGLE + 7;
+    // Image-space measurements; the heuristic thresholds were tuned on these.
+    public static final int TORSO_ANGLE = LEFT_ELBOW_ANGLE + 8;
+    public static final int TORSO_DX = TORSO_ANGLE + 1;
+    public static final int TORSO_DY = TORSO_ANGLE + 2;
+    public static final int TORSO_LENGTH = TORSO_ANGLE + 3;
+    public static final int SHOULDER_X = TORSO_ANGLE + 4;
+    public static final int SHOULDER_Y = TORSO_ANGLE + 5;
+    public static final int HIP_X = TORSO_ANGLE + 6;
+    public static final int HIP_Y = TORSO_ANGLE + 7;
+    public static final int KNEE_Y = TORSO_ANGLE + 8;
+    public static final int HEEL_X = TORSO_ANGLE + 9;
+    public static final int HEEL_Y = TORSO_ANGLE + 10;
+    public static final int COM_X = TORSO_ANGLE + 11;
+    public static final int COM_Y = TORSO_ANGLE + 12;
+    public static final int BBOX_MIN_X = TORSO_ANGLE + 13;
+    public static final int BBOX_MAX_X = TORSO_ANGLE + 14;
+    public static final int BBOX_MIN_Y = TORSO_ANGLE + 15;
+    public static final int BBOX_MAX_Y = TORSO_ANGLE + 16;
+    public static final int ASPECT_RATIO = TORSO_ANGLE + 17;
+    public static final int SIZE = TORSO_ANGLE + 18;
+
+    private static final int LEFT_SHOULDER = 11;
+    private static final int RIGHT_SHOULDER = 12;
+    private static final int LEFT_ELBOW = 13;
+    private static final int RIGHT_ELBOW = 14;
+    private static final int LEFT_WRIST = 15;
+    private static final int RIGHT_WRIST = 16;
+    private static final int LEFT_HIP = 23;
+    private static final int RIGHT_HIP = 24;
+    private static final int LEFT_KNEE = 25;
+    private static final int RIGHT_KNEE = 26;
+    private static final int LEFT_ANKLE = 27;
+    private static final int RIGHT_ANKLE = 28;
+    private static final int LEFT_HEEL = 29;
+    private static final int RIGHT_HEEL = 30;
+    private static final float MIN_TORSO_LENGTH = 1e-3f;
+    private static final float MIN_BOX_SIZE = 1e-6f;
+    // (first, vertex, last) landmark triples, in the order of the *_ANGLE slots.
+    private static final int[] ANGLE_JOINTS = {
+            LEFT_SHOULDER, LEFT_ELBOW, LEFT_WRIST,
+            RIGHT_SHOULDER, RIGHT_ELBOW, RIGHT_WRIST,
+            LEFT_ELBOW, LEFT_SHOULDER, LEFT_HIP,
+            RIGHT_ELBOW, RIGHT_SHOULDER, RIGHT_HIP,
+            LEFT_SHOULDER, LEFT_HIP, LEFT_KNEE,
+            RIGHT_SHOULDER, RIGHT_HIP, RIGHT_KNEE,
+            LEFT_HIP, LEFT_KNEE, LEFT_ANKLE,
+            RIGHT_HIP, RIGHT_KNEE, RIGHT_ANKLE
+    };
+
+    private PoseFeatures() {
+    }
+
+    // Writes SIZE floats into out. Returns false, leaving out untouched, when the frame lacks the lower body.
+    public static boolean extract(float[] frame, int landmarkCount, float[] out) {
+        if (frame == null || landmarkCount <= RIGHT_HEEL) {
+            return false;
+        }
+        float shoulderX = (x(frame, LEFT_SHOULDER) + x(frame, RIGHT_SHOULDER)) * 0.5f;
+        float shoulderY = (y(frame, LEFT_SHOULDER) + y(frame, RIGHT_SHOULDER)) * 0.5f;
+        float hipX = (x(frame, LEFT_HIP) + x(frame, RIGHT_HIP)) * 0.5f;
+        float hipY = (y(frame, LEFT_HIP) + y(frame, RIGHT_HIP)) * 0.5f;
+        float torsoDx = Math.abs(shoulderX - hipX);
+        float torsoDy = Math.abs(shoulderY - hipY);
+        float torsoLength = (float) Math.sqrt(torsoDx * torsoDx + torsoDy * torsoDy);
+        float scale = 1f / Math.max(torsoLength, MIN_TORSO_LENGTH);
+
+        float minX = 1f;
+        float maxX = 0f;
+        float minY = 1f;
+        float maxY = 0f;
+        int landmarks = Math.min(landmarkCount, PoseAnalyticsEngine.LANDMARK_COUNT);
+        for (int i = 0; i < PoseAnalyticsEngine.LANDMARK_COUNT; i++) {
+            int target = NORMALIZED_OFFSET + i * COORDINATES;
+            if (i >= landmarks) {
+                out[target] = 0f;
+                out[target + 1] = 0f;
+                out[target + 2] = 0f;
+                out[CONFIDENCE_OFFSET + i] = 0f;
+                continue;
+            }
+            int base = i * PoseAnalyticsEngine.STRIDE;
+            float x = frame[base + PoseAnalyticsEngine.OFFSET_X];
+            float y = frame[base + PoseAnalyticsEngine.OFFSET_Y];
+            out[target] = (x - hipX) * scale;
+            out[target + 1] = (y - hipY) * scale;
+            out[target + 2] = frame[base + PoseAnalyticsEngine.OFFSET_Z] * scale;
+            out[CONFIDENCE_OFFSET + i] = Math.max(
+                    frame[base + PoseAnalyticsEngine.OFFSET_VISIBILITY],
+                    frame[base + PoseAnalyticsEngine.OFFSET_PRESENCE]);
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+        for (int j = 0; j < ANGLE_JOINTS.length; j += 3) {
+            out[LEFT_ELBOW_ANGLE + j / 3] = PoseAnalyticsEngine.calculateAngle(
+                    frame, ANGLE_JOINTS[j], ANGLE_JOINTS[j + 1], ANGLE_JOINTS[j + 2]);
+        }
+
+        out[TORSO_ANGLE] = (float) Math.toDegrees(Math.atan2(torsoDx, torsoDy));
+        out[TORSO_DX] = torsoDx;
+        out[TORSO_DY] = torsoDy;
+        out[TORSO_LENGTH] = torsoLength;
+        out[SHOULDER_X] = shoulderX;
+        out[SHOULDER_Y] = shoulderY;
+        out[HIP_X] = hipX;
+        out[HIP_Y] = hipY;
+        out[KNEE_Y] = (y(frame, LEFT_KNEE) + y(frame, RIGHT_KNEE)) * 0.5f;
+        out[HEEL_X] = (x(frame, LEFT_HEEL) + x(frame, RIGHT_HEEL)) * 0.5f;
+        out[HEEL_Y] = (y(frame, LEFT_HEEL) + y(frame, RIGHT_HEEL)) * 0.5f;
+        out[COM_X] = (shoulderX + hipX) * 0.5f;
+        out[COM_Y] = (shoulderY + hipY) * 0.5f;
+        out[BBOX_MIN_X] = minX;
+        out[BBOX_MAX_X] = maxX;
+        out[BBOX_MIN_Y] = minY;
+        out[BBOX_MAX_Y] = maxY;
+        out[ASPECT_RATIO] = Math.max(maxY - minY, MIN_BOX_SIZE) / Math.max(maxX - minX, MIN_BOX_SIZE);
+        return true;
+    }
+
+    private static float x(float[] frame, int index) {
+        return frame[index * PoseAnalyticsEngine.STRIDE + PoseAnalyticsEngine.OFFSET_X];
+    }
+
+    private static float y(float[] frame, int index) {
+        return frame[index * PoseAnalyticsEngine.STRIDE + PoseAnalyticsEngine.OFFSET_Y];
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.mediapipepose;
+
+import android.util.Log;
+import java.util.Locale;
+
+public final class PoseLabelClassifier implements PoseAnalyticsWorker.Classifier {
+    private static final String TAG = "PoseLabelClassifier";
+    private static final float HEURISTIC_WEIGHT = 0.6f;
+    private static final int LABEL_SLOTS = PoseAnalyticsEngine.LABEL_WALKING + 1;
+
+    public enum Backend {
+        HEURISTIC,
+        TFLITE,
+        SERVER,
+        BLEND;
+
+        public static Backend parse(String value, Backend fallback) {
+            if (value == null) {
+                return fallback;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.US));
+            } catch (IllegalArgumentException error) {
+                return fallback;
+            }
+        }
+    }
+
+    private static final class Model {
+        final PoseClassifier classifier;
+        final int[] labels;
+
+        Model(PoseClassifier classifier) {
+            this.classifier = classifier;
+            this.labels = new int[classifier.getLabelCount()];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = PoseAnalyticsEngine.labelFromName(classifier.getLabel(i));
+            }
+        }
+    }
+
+    private final float[] votes = new float[LABEL_SLOTS];
+    private final int[] batchOrder = new int[PoseTracker.MAX_PEOPLE];
+    private final int[] batchPositions = new int[PoseTracker.MAX_PEOPLE];
+    private final int[] batchKeys = new int[PoseTracker.MAX_PEOPLE];
+    private final PoseClassifier.BatchResult batchResult =
+            new PoseClassifier.BatchResult(PoseTracker.MAX_PEOPLE);
+    private volatile Backend backend;
+    private volatile Model model;
+
+    public PoseLabelClassifier(Backend backend) {
+        this.backend = backend;
+    }
+
+    public void setBackend(Backend backend) {
+        this.backend = backend;
+    }
+
+    public Backend getBackend() {
+        return backend;
+    }
+
+    public void setModel(PoseClassifier classifier) {
+        this.model = classifier == null ? null : new Model(classifier);
+    }
+
+    public boolean isModelLoaded() {
+        return model != null;
+    }
+
+    public void close() {
+        Model current = model;
+        model = null;
+        if (current != null) {
+            current.classifier.close();
+        }
+    }
+
+    // Runs on the analytics thread. The state machine's FALLEN label always wins; the model has no such class.
+    @Override
+    public void classify(
+            float[][] features,
+            int[] order,
+            int[] personIds,
+            int[] heuristicLabels,
+            int count,
+            int[] outLabels) {
+        System.arraycopy(heuristicLabels, 0, outLabels, 0, count);
+        Backend current = backend;
+        Model loaded = model;
+        if (current == Backend.HEURISTIC || current == Backend.SERVER || loaded == null) {
+            return;
+        }
+        int batchCount = 0;
+        for (int i = 0; i < count && batchCount < batchOrder.length; i++) {
+            int heuristicLabel = heuristicLabels[i];
+            if (heuristicLabel == PoseAnalyticsEngine.LABEL_FALLEN
+                    || heuristicLabel == PoseAnalyticsEngine.LABEL_UNKNOWN) {
+                continue;
+            }
+            batchOrder[batchCount] = order[i];
+            batchPositions[batchCount] = i;
+            batchKeys[batchCount] = personIds[i];
+            batchCount += 1;
+        }
+        if (batchCount == 0) {
+            return;
+        }
+        try {
+            loaded.classifier.classifyBatch(features, batchOrder, batchKeys, batchCount, batchResult);
+        } catch (RuntimeException error) {
+            Log.w(TAG, "Pose classifier failed; using heuristic labels", error);
+            return;
+        }
+        for (int i = 0; i < batchResult.getCount(); i++) {
+            int position = batchPositions[i];
+            int index = batchResult.getIndex(i);
+            int modelLabel = index < 0 || index >= loaded.labels.length
+                    ? PoseAnalyticsEngine.LABEL_UNKNOWN
+                    : loaded.labels[index];
+            outLabels[position] = combine(
+                    current, heuristicLabels[position], modelLabel, batchResult.getConfidence(i));
+        }
+    }
+
+    private int combine(Backend current, int heuristicLabel, int modelLabel, float confidence) {
+        if (modelLabel == PoseAnalyticsEngine.LABEL_UNKNOWN) {
+            return heuristicLabel;
+        }
+        modelLabel = refine(modelLabel, heuristicLabel);
+        if (current == Backend.TFLITE) {
+            return modelLabel;
+        }
+
+        // Blend: the heuristic votes with a fixed weight, the model with its own confidence.
+        for (int i = 0; i < LABEL_SLOTS; i++) {
+            votes[i] = 0f;
+        }
+        votes[heuristicLabel] += HEURISTIC_WEIGHT;
+        votes[modelLabel] += confidence;
+        int best = heuristicLabel;
+        for (int i = 0; i < LABEL_SLOTS; i++) {
+            if (votes[i] > votes[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    // The model only knows standing, sitting and lying; walking and crouching refine those rather than contradict them.
+    private static int refine(int modelLabel, int heuristicLabel) {
+        if (modelLabel == PoseAnalyticsEngine.LABEL_STANDING
+                && heuristicLabel == PoseAnalyticsEngine.LABEL_WALKING) {
+            return heuristicLabel;
+        }
+        if (modelLabel == PoseAnalyticsEngine.LABEL_SITTING
+                && heuristicLabel == PoseAnalyticsEngine.LABEL_CROUCHING) {
+            return heuristicLabel;
+        }
+        return modelLabel;
+    }
+}
@@ -6,9 +6,6 @@ import android.graphics.Paint;
 import android.util.AttributeSet;
 import android.view.View;
 import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
-import com.google.mediapipe.tasks.vision.facelandmarker.FaceLandmarkerResult;
-import com.google.mediapipe.tasks.vision.handlandmarker.HandLandmarkerResult;
-import com.google.mediapipe.tasks.vision.poselandmarker.PoseLandmarkerResult;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -42,10 +39,19 @@ public class PoseOverlayView extends View {
     private final Paint textPaint = new Paint();
     private final Object renderLock = new Object();
 
-    private PoseLandmarkerResult poseResult;
-    private FaceLandmarkerResult faceResult;
-    private HandLandmarkerResult handResult;
+    private List<List<NormalizedLandmark>> poseLandmarks;
+    private List<List<NormalizedLandmark>> faceLandmarks;
+    private List<List<NormalizedLandmark>> handLandmarks;
+    private long poseTimestampMs;
     private String poseLabel = "";
+    // Tracked ID of each pose by detection index of the frame at poseIdsTimestampMs, and the latest label per ID.
+    // Detection order can change between frames, so IDs are only drawn on the frame they were assigned in.
+    private final int[] poseIds = new int[PoseTracker.MAX_PEOPLE];
+    private int poseIdCount;
+    private long poseIdsTimestampMs = Long.MIN_VALUE;
+    private final int[] labeledIds = new int[PoseTracker.MAX_PEOPLE];
+    private final String[] personLabels = new String[PoseTracker.MAX_PEOPLE];
+    private int labeledCount;
     private int imageWidth;
     private int imageHeight;
     private boolean mirror;
@@ -68,25 +74,48 @@ public class PoseOverlayView extends View {
         textPaint.setShadowLayer(4f, 0f, 0f, 0xFF000000);
     }
 
-    public void setPoseResults(PoseLandmarkerResult result, int imageWidth, int imageHeight) {
+    public void setPoseResults(
+            List<List<NormalizedLandmark>> landmarks,
+            int imageWidth,
+            int imageHeight,
+            long timestampMs) {
         synchronized (renderLock) {
-            this.poseResult = result;
+            this.poseLandmarks = landmarks;
+            this.poseTimestampMs = timestampMs;
             this.imageWidth = imageWidth;
             this.imageHeight = imageHeight;
-            this.faceResult = null;
+            this.faceLandmarks = null;
             if (renderMode != RenderMode.POSE_HAND) {
-                this.handResult = null;
+                this.handLandmarks = null;
                 this.renderMode = RenderMode.POSE;
             }
         }
         postInvalidate();
     }
 
-    public void setFaceResults(FaceLandmarkerResult result, int imageWidth, int imageHeight) {
+    public void setPoseHandResults(
+            List<List<NormalizedLandmark>> pose,
+            List<List<NormalizedLandmark>> hands,
+            int imageWidth,
+            int imageHeight,
+            long timestampMs) {
         synchronized (renderLock) {
-            this.poseResult = null;
-            this.faceResult = result;
-            this.handResult = null;
+            this.poseLandmarks = pose;
+            this.poseTimestampMs = timestampMs;
+            this.handLandmarks = hands;
+            this.faceLandmarks = null;
+            this.imageWidth = imageWidth;
+            this.imageHeight = imageHeight;
+            this.renderMode = RenderMode.POSE_HAND;
+        }
+        postInvalidate();
+    }
+
+    public void setFaceResults(List<List<NormalizedLandmark>> landmarks, int imageWidth, int imageHeight) {
+        synchronized (renderLock) {
+            this.poseLandmarks = null;
+            this.faceLandmarks = landmarks;
+            this.handLandmarks = null;
             this.imageWidth = imageWidth;
             this.imageHeight = imageHeight;
             this.renderMode = RenderMode.FACE;
@@ -94,14 +123,14 @@ public class PoseOverlayView extends View {
         postInvalidate();
     }
 
-    public void setHandResults(HandLandmarkerResult result, int imageWidth, int imageHeight) {
+    public void setHandResults(List<List<NormalizedLandmark>> landmarks, int imageWidth, int imageHeight) {
         synchronized (renderLock) {
-            this.faceResult = null;
-            this.handResult = result;
+            this.faceLandmarks = null;
+            this.handLandmarks = landmarks;
             this.imageWidth = imageWidth;
             this.imageHeight = imageHeight;
             if (renderMode != RenderMode.POSE_HAND) {
-                this.poseResult = null;
+                this.poseLandmarks = null;
                 this.renderMode = RenderMode.HAND;
             }
         }
@@ -123,10 +152,41 @@ public class PoseOverlayView extends View {
 
     public void clear() {
         synchronized (renderLock) {
-            this.poseResult = null;
-            this.faceResult = null;
-            this.handResult = null;
+            this.poseLandmarks = null;
+            this.faceLandmarks = null;
+            this.handLandmarks = null;
             this.poseLabel = "";
+            this.poseIdCount = 0;
+            this.labeledCount = 0;
+        }
+        postInvalidate();
+    }
+
+    // frameIndexes[i] is the position in the pose list of the frame at timestampMs of the person with personIds[i].
+    public void setPersonIds(int[] personIds, int[] frameIndexes, int count, long timestampMs) {
+        synchronized (renderLock) {
+            poseIdsTimestampMs = timestampMs;
+            poseIdCount = 0;
+            for (int i = 0; i < count; i++) {
+                int index = frameIndexes[i];
+                if (index < 0 || index >= poseIds.length) {
+                    continue;
+                }
+                while (poseIdCount <= index) {
+                    poseIds[poseIdCount] = -1;
+                    poseIdCount += 1;
+                }
+                poseIds[index] = personIds[i];
+            }
+        }
+        postInvalidate();
+    }
+
+    public void setPersonLabels(int[] personIds, String[] labels, int count) {
+        synchronized (renderLock) {
+            labeledCount = Math.min(count, labeledIds.length);
+            System.arraycopy(personIds, 0, labeledIds, 0, labeledCount);
+            System.arraycopy(labels, 0, personLabels, 0, labeledCount);
         }
         postInvalidate();
     }
@@ -183,15 +243,46 @@ public class PoseOverlayView extends View {
             float offsetY,
             float canvasWidth,
             boolean mirrorOverride) {
-        if (poseResult == null || poseResult.landmarks().isEmpty()) {
+        if (poseLandmarks == null || poseLandmarks.isEmpty()) {
             return;
         }
 
-        List<NormalizedLandmark> landmarks = poseResult.landmarks().get(0);
-        if (landmarks == null || landmarks.isEmpty()) {
-            return;
+        for (int pose = 0; pose < poseLandmarks.size(); pose++) {
+            List<NormalizedLandmark> landmarks = poseLandmarks.get(pose);
+            if (landmarks != null && !landmarks.isEmpty()) {
+                drawSinglePose(canvas, landmarks, poseLabelFor(pose), scale, offsetX, offsetY, canvasWidth,
+                        mirrorOverride);
+            }
         }
+    }
 
+    // "ID: label" for a tracked pose; the single server or fall label only goes on the first pose.
+    private String poseLabelFor(int pose) {
+        int id = pose < poseIdCount && poseIdsTimestampMs == poseTimestampMs ? poseIds[pose] : -1;
+        String label = null;
+        for (int i = 0; i < labeledCount && id >= 0; i++) {
+            if (labeledIds[i] == id) {
+                label = personLabels[i];
+            }
+        }
+        if ((label == null || label.isEmpty()) && pose == 0) {
+            label = poseLabel;
+        }
+        if (id < 0) {
+            return label;
+        }
+        return label == null || label.isEmpty() ? String.valueOf(id) : id + ": " + label;
+    }
+
+    private void drawSinglePose(
+            Canvas canvas,
+            List<NormalizedLandmark> landmarks,
+            String label,
+            float scale,
+            float offsetX,
+            float offsetY,
+            float canvasWidth,
+            boolean mirrorOverride) {
         List<float[]> points = new ArrayList<>(landmarks.size());
         for (NormalizedLandmark landmark : landmarks) {
             if (isLandmarkConfident(landmark)) {
@@ -216,7 +307,7 @@ public class PoseOverlayView extends View {
             }
         }
 
-        drawPoseLabel(canvas, points, canvasWidth);
+        drawPoseLabel(canvas, points, label, canvasWidth);
 
         for (float[] point : points) {
             if (point != null) {
@@ -225,8 +316,8 @@ public class PoseOverlayView extends View {
         }
     }
 
-    private void drawPoseLabel(Canvas canvas, List<float[]> points, float canvasWidth) {
-        if (poseLabel == null || poseLabel.isEmpty()) {
+    private void drawPoseLabel(Canvas canvas, List<float[]> points, String label, float canvasWidth) {
+        if (label == null || label.isEmpty()) {
             return;
         }
 
@@ -250,7 +341,7 @@ public class PoseOverlayView extends View {
             return;
         }
         float centerX = sumX / count;
-        float textWidth = textPaint.measureText(poseLabel);
+        float textWidth = textPaint.measureText(label);
         float drawX = centerX - textWidth * 0.5f;
         if (drawX < 0f) {
             drawX = 0f;
@@ -261,7 +352,7 @@ public class PoseOverlayView extends View {
         if (drawY < textPaint.getTextSize()) {
             drawY = textPaint.getTextSize();
         }
-        canvas.drawText(poseLabel, drawX, drawY, textPaint);
+        canvas.drawText(label, drawX, drawY, textPaint);
     }
 
     private void drawFace(
@@ -271,11 +362,11 @@ public class PoseOverlayView extends View {
             float offsetY,
             float canvasWidth,
             boolean mirrorOverride) {
-        if (faceResult == null || faceResult.faceLandmarks().isEmpty()) {
+        if (faceLandmarks == null || faceLandmarks.isEmpty()) {
             return;
         }
 
-        for (List<NormalizedLandmark> landmarks : faceResult.faceLandmarks()) {
+        for (List<NormalizedLandmark> landmarks : faceLandmarks) {
             for (NormalizedLandmark landmark : landmarks) {
                 if (isLandmarkConfident(landmark)) {
                     float x = landmark.x() * imageWidth * scale + offsetX;
@@ -296,7 +387,7 @@ public class PoseOverlayView extends View {
             float offsetY,
             float canvasWidth,
             boolean mirrorOverride) {
-        if (handResult == null || handResult.landmarks().isEmpty()) {
+        if (handLandmarks == null || handLandmarks.isEmpty()) {
             return;
         }
 
@@ -308,7 +399,7 @@ public class PoseOverlayView extends View {
                 {0, 17}, {17, 18}, {18, 19}, {19, 20}
         };
 
-        for (List<NormalizedLandmark> landmarks : handResult.landmarks()) {
+        for (List<NormalizedLandmark> landmarks : handLandmarks) {
             List<float[]> points = new ArrayList<>(landmarks.size());
             for (NormalizedLandmark landmark : landmarks) {
                 if (isLandmarkConfident(landmark)) {
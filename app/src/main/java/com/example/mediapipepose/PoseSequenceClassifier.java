@@ -0,0 +1,261 @@
+package com.example.mediapipepose;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.List;
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+// Runs a temporal TFLite model with input [1, T, F] over the last T time steps of each tracked person. Frames
+// arrive at whatever rate the inference scheduler allows, so they are resampled onto a fixed step grid first;
+// the window then always spans T * stepMs of motion.
+public final class PoseSequenceClassifier implements Closeable {
+    // Must match the frame interval of the sequences the model was trained on.
+    public static final long DEFAULT_STEP_MS = 100;
+    public static final long DEFAULT_RUN_INTERVAL_MS = 400;
+    private static final int FLOAT_BYTES = 4;
+    private static final int MAX_WINDOWS = PoseTracker.MAX_PEOPLE * 2;
+    private static final long MAX_FRAME_GAP_MS = 1000;
+
+    private static final class Window {
+        int key;
+        boolean used;
+        long lastTimestampMs;
+        int next;
+        int filled;
+        int stepsSinceRun;
+    }
+
+    private final Interpreter interpreter;
+    private final List<String> labels;
+    private final int windowLength;
+    private final int featureSize;
+    private final int outputSize;
+    private final int fallIndex;
+    private final long stepMs;
+    private final int runSteps;
+    // Each window owns 2 * T frame rows and every frame is written twice, at i and i + T, so the last T
+    // frames are always one contiguous run starting at the oldest row; a new frame never re-copies the window.
+    private final FloatBuffer ring;
+    private final ByteBuffer[][] windowViews;
+    private final ByteBuffer outputBytes;
+    private final FloatBuffer output;
+    private final Window[] windows = new Window[MAX_WINDOWS];
+    private final FixedStepResampler[] resamplers = new FixedStepResampler[MAX_WINDOWS];
+    private final float[][] stepRows;
+    private long inferenceCount;
+    private float lastConfidence;
+    private int lastIndex = -1;
+    private boolean closed;
+
+    private PoseSequenceClassifier(
+            Interpreter interpreter, List<String> labels, long stepMs, long runIntervalMs) {
+        Tensor inputTensor = interpreter.getInputTensor(0);
+        Tensor outputTensor = interpreter.getOutputTensor(0);
+        int[] inputShape = inputTensor.shape();
+        int[] outputShape = outputTensor.shape();
+        if (inputShape.length != 3 || inputShape[0] != 1) {
+            throw new IllegalArgumentException("Sequence model input must be [1, T, F]");
+        }
+        if (inputTensor.dataType() != DataType.FLOAT32 || outputTensor.dataType() != DataType.FLOAT32) {
+            throw new IllegalArgumentException("Sequence model must use float32 tensors");
+        }
+        this.interpreter = interpreter;
+        this.labels = labels;
+        this.windowLength = inputShape[1];
+        this.featureSize = inputShape[2];
+        this.outputSize = outputShape[outputShape.length - 1];
+        this.stepMs = Math.max(1L, stepMs);
+        this.runSteps = (int) Math.max(1L, Math.round((double) runIntervalMs / this.stepMs));
+        // No push can add more steps than the window holds.
+        this.stepRows = new float[windowLength][PoseFeatures.SIZE];
+        int fall = -1;
+        for (int i = 0; i < labels.size() && i < outputSize; i++) {
+            if (PoseAnalyticsEngine.labelFromName(labels.get(i)) == PoseAnalyticsEngine.LABEL_FALLEN) {
+                fall = i;
+            }
+        }
+        if (fall < 0) {
+            throw new IllegalArgumentException("Sequence model labels have no Fallen class");
+        }
+        this.fallIndex = fall;
+
+        int rowBytes = featureSize * FLOAT_BYTES;
+        int windowBytes = 2 * windowLength * rowBytes;
+        ByteBuffer ringBytes = ByteBuffer.allocateDirect(MAX_WINDOWS * windowBytes).order(ByteOrder.nativeOrder());
+        this.ring = ringBytes.asFloatBuffer();
+        this.windowViews = new ByteBuffer[MAX_WINDOWS][windowLength];
+        for (int w = 0; w < MAX_WINDOWS; w++) {
+            windows[w] = new Window();
+            resamplers[w] = new FixedStepResampler(this.stepMs, PoseFeatures.SIZE);
+            for (int start = 0; start < windowLength; start++) {
+                ByteBuffer view = ringBytes.duplicate();
+                view.position(w * windowBytes + start * rowBytes);
+                view.limit(w * windowBytes + (start + windowLength) * rowBytes);
+                windowViews[w][start] = view.slice().order(ByteOrder.nativeOrder());
+            }
+        }
+        this.outputBytes = ByteBuffer.allocateDirect(outputSize * FLOAT_BYTES).order(ByteOrder.nativeOrder());
+        this.output = outputBytes.asFloatBuffer();
+    }
+
+    public static PoseSequenceClassifier createFromAssets(
+            Context context,
+            String modelPath,
+            String labelsPath,
+            long stepMs,
+            long runIntervalMs) throws IOException {
+        AssetManager assetManager = context.getAssets();
+        Interpreter.Options options = new Interpreter.Options();
+        options.setNumThreads(1);
+        Interpreter interpreter = new Interpreter(PoseClassifier.loadModel(assetManager, modelPath), options);
+        try {
+            return new PoseSequenceClassifier(
+                    interpreter, PoseClassifier.loadLabels(assetManager, labelsPath), stepMs, runIntervalMs);
+        } catch (IOException | RuntimeException error) {
+            interpreter.close();
+            throw error;
+        }
+    }
+
+    // Adds the steps between the person's previous frame and this one to their window and, once the window is
+    // full, runs the model every runIntervalMs of pose time. Returns the Fallen score, or NaN when the model did
+    // not run for this frame. A frame no newer than the person's previous one is rejected.
+    public synchronized float push(int key, float[] features, long timestampMs) {
+        if (closed || features == null) {
+            return Float.NaN;
+        }
+        int w = windowFor(key, timestampMs);
+        Window window = windows[w];
+        if (timestampMs - window.lastTimestampMs > MAX_FRAME_GAP_MS) {
+            // Motion across a long gap is not motion the model was trained on.
+            resetWindow(w);
+        }
+        int steps = resamplers[w].push(features, timestampMs, stepRows);
+        if (steps < 0) {
+            return Float.NaN;
+        }
+        window.lastTimestampMs = timestampMs;
+        int base = w * 2 * windowLength * featureSize;
+        for (int step = 0; step < steps; step++) {
+            writeFeatures(stepRows[step], base + window.next * featureSize);
+            writeFeatures(stepRows[step], base + (window.next + windowLength) * featureSize);
+            window.next = (window.next + 1) % windowLength;
+        }
+        window.filled = Math.min(window.filled + steps, windowLength);
+        window.stepsSinceRun += steps;
+        if (window.filled < windowLength || window.stepsSinceRun < runSteps) {
+            return Float.NaN;
+        }
+        window.stepsSinceRun = 0;
+
+        // After the write, next points at the oldest frame of the full window.
+        ByteBuffer input = windowViews[w][window.next];
+        input.rewind();
+        outputBytes.rewind();
+        interpreter.run(input, outputBytes);
+        inferenceCount += 1;
+        lastIndex = 0;
+        for (int i = 1; i < outputSize; i++) {
+            if (output.get(i) > output.get(lastIndex)) {
+                lastIndex = i;
+            }
+        }
+        lastConfidence = output.get(lastIndex);
+        return output.get(fallIndex);
+    }
+
+    // One run on an empty window so the first person to fill a window does not also pay for tensor allocation.
+    // Returns the run time in ms.
+    public synchronized long warmUp() {
+        if (closed) {
+            return 0L;
+        }
+        // Only reads the ring; push overwrites the output before reading it.
+        ByteBuffer input = windowViews[0][0];
+        input.rewind();
+        outputBytes.rewind();
+        long start = System.nanoTime();
+        interpreter.run(input, outputBytes);
+        return (System.nanoTime() - start) / 1_000_000L;
+    }
+
+    public synchronized String getLastLabel() {
+        if (lastIndex < 0) {
+            return null;
+        }
+        return lastIndex < labels.size() ? labels.get(lastIndex) : "Class " + lastIndex;
+    }
+
+    public synchronized float getLastConfidence() {
+        return lastConfidence;
+    }
+
+    public synchronized long getInferenceCount() {
+        return inferenceCount;
+    }
+
+    public int getWindowLength() {
+        return windowLength;
+    }
+
+    public long getStepMs() {
+        return stepMs;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        interpreter.close();
+    }
+
+    private int windowFor(int key, long timestampMs) {
+        int free = -1;
+        int oldest = 0;
+        for (int w = 0; w < MAX_WINDOWS; w++) {
+            Window window = windows[w];
+            if (window.used && window.key == key) {
+                return w;
+            }
+            if (!window.used && free < 0) {
+                free = w;
+            }
+            if (windows[w].lastTimestampMs < windows[oldest].lastTimestampMs) {
+                oldest = w;
+            }
+        }
+        // Track IDs are never reused, so the window idle the longest belongs to someone who left.
+        int w = free >= 0 ? free : oldest;
+        Window window = windows[w];
+        window.used = true;
+        window.key = key;
+        window.lastTimestampMs = timestampMs;
+        resetWindow(w);
+        return w;
+    }
+
+    private void resetWindow(int w) {
+        Window window = windows[w];
+        window.filled = 0;
+        window.next = 0;
+        window.stepsSinceRun = 0;
+        resamplers[w].reset();
+    }
+
+    // Each step of the window is the leading featureSize entries of the PoseFeatures vector, zero-padded.
+    private void writeFeatures(float[] features, int offset) {
+        int size = Math.min(featureSize, PoseFeatures.SIZE);
+        for (int i = 0; i < size; i++) {
+            ring.put(offset + i, features[i]);
+        }
+        for (int i = size; i < featureSize; i++) {
+            ring.put(offset + i, 0f);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.mediapipepose;
+
+public final class PoseTracker {
+    public static final int MAX_PEOPLE = 4;
+    private static final int MAX_TRACKS = MAX_PEOPLE * 2;
+    private static final long TRACK_TIMEOUT_MS = 1500;
+    private static final float IOU_WEIGHT = 0.6f;
+    private static final float MIN_MATCH_SCORE = 0.3f;
+    private static final float MIN_BOX_SIZE = 1e-3f;
+    private static final long REMATCH_MAX_AGE_MS = 500;
+    private static final float REMATCH_MAX_HIP_DISTANCE = 0.8f;
+    private static final int LEFT_HIP = 23;
+    private static final int RIGHT_HIP = 24;
+
+    public static final class Track {
+        private final PoseAnalyticsEngine engine = new PoseAnalyticsEngine();
+        private final float[] frame = new float[PoseAnalyticsEngine.FRAME_SIZE];
+        private int landmarkCount;
+        private float minX;
+        private float maxX;
+        private float minY;
+        private float maxY;
+        private int id;
+        private long lastSeenMs;
+
+        public int getId() {
+            return id;
+        }
+
+        public PoseAnalyticsEngine getEngine() {
+            return engine;
+        }
+
+        public long getLastSeenMs() {
+            return lastSeenMs;
+        }
+    }
+
+    private final Track[] free = new Track[MAX_TRACKS];
+    private final Track[] active = new Track[MAX_TRACKS];
+    private final float[] detectionBoxes = new float[MAX_PEOPLE * 4];
+    private final boolean[] trackMatched = new boolean[MAX_TRACKS];
+    private int freeCount;
+    private int activeCount;
+    private int nextId = 1;
+
+    public PoseTracker() {
+        for (int i = 0; i < MAX_TRACKS; i++) {
+            free[i] = new Track();
+        }
+        freeCount = MAX_TRACKS;
+    }
+
+    // Fills assigned[i] with the track for detection i. Not thread-safe; call from the analytics thread only.
+    public void update(float[][] frames, int[] landmarkCounts, int count, long timestampMs, Track[] assigned) {
+        count = Math.min(count, MAX_PEOPLE);
+        expire(timestampMs);
+        for (int i = 0; i < count; i++) {
+            assigned[i] = null;
+            boundingBox(frames[i], landmarkCounts[i], detectionBoxes, i * 4);
+        }
+        for (int t = 0; t < activeCount; t++) {
+            trackMatched[t] = false;
+        }
+
+        // Greedy best-pair matching; with at most MAX_PEOPLE detections this stays a handful of comparisons.
+        while (true) {
+            int bestTrack = -1;
+            int bestDetection = -1;
+            float bestScore = MIN_MATCH_SCORE;
+            for (int t = 0; t < activeCount; t++) {
+                if (trackMatched[t]) {
+                    continue;
+                }
+                for (int d = 0; d < count; d++) {
+                    if (assigned[d] != null) {
+                        continue;
+                    }
+                    float score = score(active[t], frames[d], landmarkCounts[d], d * 4);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestTrack = t;
+                        bestDetection = d;
+                    }
+                }
+            }
+            if (bestTrack < 0) {
+                break;
+            }
+            trackMatched[bestTrack] = true;
+            assigned[bestDetection] = active[bestTrack];
+        }
+        rematchByHips(frames, landmarkCounts, count, timestampMs, assigned);
+
+        for (int d = 0; d < count; d++) {
+            Track track = assigned[d];
+            if (track == null) {
+                track = open();
+                assigned[d] = track;
+                if (track == null) {
+                    continue;
+                }
+            }
+            track.lastSeenMs = timestampMs;
+            track.landmarkCount = landmarkCounts[d];
+            System.arraycopy(frames[d], 0, track.frame, 0, landmarkCounts[d] * PoseAnalyticsEngine.STRIDE);
+            track.minX = detectionBoxes[d * 4];
+            track.maxX = detectionBoxes[d * 4 + 1];
+            track.minY = detectionBoxes[d * 4 + 2];
+            track.maxY = detectionBoxes[d * 4 + 3];
+        }
+    }
+
+    public void reset() {
+        while (activeCount > 0) {
+            close(activeCount - 1);
+        }
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    private void expire(long timestampMs) {
+        for (int t = activeCount - 1; t >= 0; t--) {
+            if (timestampMs - active[t].lastSeenMs > TRACK_TIMEOUT_MS) {
+                close(t);
+            }
+        }
+    }
+
+    private Track open() {
+        if (freeCount == 0) {
+            // Every slot holds a recently lost person; recycle the one missing the longest.
+            int oldest = -1;
+            for (int t = 0; t < activeCount; t++) {
+                if (!trackMatched[t] && (oldest < 0 || active[t].lastSeenMs < active[oldest].lastSeenMs)) {
+                    oldest = t;
+                }
+            }
+            if (oldest < 0) {
+                return null;
+            }
+            close(oldest);
+        }
+        freeCount -= 1;
+        Track track = free[freeCount];
+        free[freeCount] = null;
+        track.engine.reset();
+        track.id = nextId++;
+        trackMatched[activeCount] = true;
+        active[activeCount] = track;
+        activeCount += 1;
+        return track;
+    }
+
+    private void close(int index) {
+        Track track = active[index];
+        activeCount -= 1;
+        active[index] = active[activeCount];
+        trackMatched[index] = trackMatched[activeCount];
+        active[activeCount] = null;
+        free[freeCount] = track;
+        freeCount += 1;
+    }
+
+    // A fall changes the box shape within a few frames, so IoU alone would split one person into two.
+    // Recently seen tracks get a second chance on hip position, which moves less than the body's height.
+    private void rematchByHips(
+            float[][] frames, int[] landmarkCounts, int count, long timestampMs, Track[] assigned) {
+        for (int d = 0; d < count; d++) {
+            if (assigned[d] != null || landmarkCounts[d] <= RIGHT_HIP) {
+                continue;
+            }
+            int best = -1;
+            float bestDistance = REMATCH_MAX_HIP_DISTANCE;
+            for (int t = 0; t < activeCount; t++) {
+                Track track = active[t];
+                if (trackMatched[t] || track.landmarkCount <= RIGHT_HIP
+                        || timestampMs - track.lastSeenMs > REMATCH_MAX_AGE_MS) {
+                    continue;
+                }
+                float dx = hipX(frames[d]) - hipX(track.frame);
+                float dy = hipY(frames[d]) - hipY(track.frame);
+                float scale = Math.max(track.maxY - track.minY, track.maxX - track.minX);
+                float distance = (float) Math.sqrt(dx * dx + dy * dy) / Math.max(scale, MIN_BOX_SIZE);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = t;
+                }
+            }
+            if (best >= 0) {
+                trackMatched[best] = true;
+                assigned[d] = active[best];
+            }
+        }
+    }
+
+    private static float hipX(float[] frame) {
+        return (frame[LEFT_HIP * PoseAnalyticsEngine.STRIDE + PoseAnalyticsEngine.OFFSET_X]
+                + frame[RIGHT_HIP * PoseAnalyticsEngine.STRIDE + PoseAnalyticsEngine.OFFSET_X]) * 0.5f;
+    }
+
+    private static float hipY(float[] frame) {
+        return (frame[LEFT_HIP * PoseAnalyticsEngine.STRIDE + PoseAnalyticsEngine.OFFSET_Y]
+                + frame[RIGHT_HIP * PoseAnalyticsEngine.STRIDE + PoseAnalyticsEngine.OFFSET_Y]) * 0.5f;
+    }
+
+    private float score(Track track, float[] frame, int landmarkCount, int boxOffset) {
+        float minX = detectionBoxes[boxOffset];
+        float maxX = detectionBoxes[boxOffset + 1];
+        float minY = detectionBoxes[boxOffset + 2];
+        float maxY = detectionBoxes[boxOffset + 3];
+        float overlapX = Math.min(maxX, track.maxX) - Math.max(minX, track.minX);
+        float overlapY = Math.min(maxY, track.maxY) - Math.max(minY, track.minY);
+        float intersection = Math.max(0f, overlapX) * Math.max(0f, overlapY);
+        float union = (maxX - minX) * (maxY - minY)
+                + (track.maxX - track.minX) * (track.maxY - track.minY)
+                - intersection;
+        float iou = union > 0f ? intersection / union : 0f;
+
+        int count = Math.min(landmarkCount, track.landmarkCount);
+        if (count == 0) {
+            return IOU_WEIGHT * iou;
+        }
+        float total = 0f;
+        for (int i = 0; i < count; i++) {
+            int base = i * PoseAnalyticsEngine.STRIDE;
+            float dx = frame[base + PoseAnalyticsEngine.OFFSET_X] - track.frame[base + PoseAnalyticsEngine.OFFSET_X];
+            float dy = frame[base + PoseAnalyticsEngine.OFFSET_Y] - track.frame[base + PoseAnalyticsEngine.OFFSET_Y];
+            total += (float) Math.sqrt(dx * dx + dy * dy);
+        }
+        // Landmark distance is scaled by the track's size so near and far people are judged alike.
+        float scale = Math.max(track.maxY - track.minY, track.maxX - track.minX);
+        float distance = total / count / Math.max(scale, MIN_BOX_SIZE);
+        float proximity = Math.max(0f, 1f - distance);
+        return IOU_WEIGHT * iou + (1f - IOU_WEIGHT) * proximity;
+    }
+
+    private static void boundingBox(float[] frame, int landmarkCount, float[] out, int offset) {
+        float minX = 1f;
+        float maxX = 0f;
+        float minY = 1f;
+        float maxY = 0f;
+        for (int i = 0; i < landmarkCount; i++) {
+            int base = i * PoseAnalyticsEngine.STRIDE;
+            float x = frame[base + PoseAnalyticsEngine.OFFSET_X];
+            float y = frame[base + PoseAnalyticsEngine.OFFSET_Y];
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+        out[offset] = minX;
+        out[offset + 1] = Math.max(minX, maxX);
+        out[offset + 2] = minY;
+        out[offset + 3] = Math.max(minY, maxY);
+    }
+}
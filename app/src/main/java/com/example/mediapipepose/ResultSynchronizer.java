@@ -0,0 +1,259 @@
+package com.example.mediapipepose;
+
+import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+public final class ResultSynchronizer {
+    public static final int PART_POSE = 1;
+    public static final int PART_HANDS = 2;
+    private static final int SLOT_COUNT = 8;
+    private static final long MIN_EXPIRY_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    public interface Listener {
+        // Called on the synchronizer's delivery thread, one result at a time and in timestamp order.
+        void onFusedResult(FusedResult result);
+    }
+
+    public static final class FusedResult {
+        private final long timestampMs;
+        private final int expectedParts;
+        private final int receivedParts;
+        private final List<List<NormalizedLandmark>> pose;
+        private final List<List<NormalizedLandmark>> hands;
+        private final int imageWidth;
+        private final int imageHeight;
+        private final long createdNanos;
+
+        private FusedResult(
+                long timestampMs,
+                int expectedParts,
+                int receivedParts,
+                List<List<NormalizedLandmark>> pose,
+                List<List<NormalizedLandmark>> hands,
+                int imageWidth,
+                int imageHeight,
+                long createdNanos) {
+            this.timestampMs = timestampMs;
+            this.expectedParts = expectedParts;
+            this.receivedParts = receivedParts;
+            this.pose = pose;
+            this.hands = hands;
+            this.imageWidth = imageWidth;
+            this.imageHeight = imageHeight;
+            this.createdNanos = createdNanos;
+        }
+
+        public long getTimestampMs() {
+            return timestampMs;
+        }
+
+        public boolean hasPose() {
+            return (receivedParts & PART_POSE) != 0;
+        }
+
+        public boolean hasHands() {
+            return (receivedParts & PART_HANDS) != 0;
+        }
+
+        public boolean isComplete() {
+            return (receivedParts & expectedParts) == expectedParts;
+        }
+
+        public int getExpectedParts() {
+            return expectedParts;
+        }
+
+        public List<List<NormalizedLandmark>> getPose() {
+            return pose;
+        }
+
+        public List<List<NormalizedLandmark>> getHands() {
+            return hands;
+        }
+
+        public int getImageWidth() {
+            return imageWidth;
+        }
+
+        public int getImageHeight() {
+            return imageHeight;
+        }
+
+        private FusedResult with(int part, List<List<NormalizedLandmark>> landmarks, int width, int height) {
+            return new FusedResult(
+                    timestampMs,
+                    expectedParts,
+                    receivedParts | part,
+                    part == PART_POSE ? landmarks : pose,
+                    part == PART_HANDS ? landmarks : hands,
+                    width,
+                    height,
+                    createdNanos);
+        }
+    }
+
+    private final AtomicReferenceArray<FusedResult> slots = new AtomicReferenceArray<>(SLOT_COUNT);
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final AtomicLong completeCount = new AtomicLong();
+    private final AtomicLong timedOutCount = new AtomicLong();
+    private final AtomicLong lateCount = new AtomicLong();
+    private final AtomicLong lastClaimedTimestampMs = new AtomicLong(Long.MIN_VALUE);
+    private final ConcurrentLinkedQueue<FusedResult> ready = new ConcurrentLinkedQueue<>();
+    private final long timeoutNanos;
+    private final long expiryCheckNanos;
+    private final Listener listener;
+    private final Thread thread;
+    private long lastDeliveredTimestampMs = Long.MIN_VALUE;
+    private volatile boolean running = true;
+
+    public ResultSynchronizer(long timeoutMs, Listener listener) {
+        this.timeoutNanos = timeoutMs * 1_000_000L;
+        this.expiryCheckNanos = Math.max(MIN_EXPIRY_CHECK_NANOS, timeoutNanos / 2);
+        this.listener = listener;
+        this.thread = new Thread(this::run, "result-sync");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // Must be called before detectAsync so a fast callback always finds its slot.
+    public void expect(long timestampMs, int parts) {
+        long now = System.nanoTime();
+        expire(now);
+        int index = Math.floorMod(nextSlot.getAndIncrement(), SLOT_COUNT);
+        FusedResult evicted = slots.getAndSet(
+                index, new FusedResult(timestampMs, parts, 0, null, null, 0, 0, now));
+        if (evicted != null && evicted.receivedParts != 0) {
+            timedOutCount.incrementAndGet();
+            emit(evicted);
+        }
+    }
+
+    public void cancel(long timestampMs) {
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            FusedResult pending = slots.get(i);
+            if (pending != null && pending.timestampMs == timestampMs) {
+                slots.compareAndSet(i, pending, null);
+            }
+        }
+    }
+
+    public void offerPose(long timestampMs, List<List<NormalizedLandmark>> pose, int width, int height) {
+        offer(timestampMs, PART_POSE, pose, width, height);
+    }
+
+    public void offerHands(long timestampMs, List<List<NormalizedLandmark>> hands, int width, int height) {
+        offer(timestampMs, PART_HANDS, hands, width, height);
+    }
+
+    // Results already claimed are still delivered before the delivery thread exits.
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    void awaitTermination() throws InterruptedException {
+        thread.join();
+    }
+
+    public long getCompleteCount() {
+        return completeCount.get();
+    }
+
+    public long getTimedOutCount() {
+        return timedOutCount.get();
+    }
+
+    public long getLateCount() {
+        return lateCount.get();
+    }
+
+    private void offer(
+            long timestampMs,
+            int part,
+            List<List<NormalizedLandmark>> landmarks,
+            int width,
+            int height) {
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            while (true) {
+                FusedResult pending = slots.get(i);
+                if (pending == null || pending.timestampMs != timestampMs) {
+                    break;
+                }
+                FusedResult updated = pending.with(part, landmarks, width, height);
+                if (!updated.isComplete()) {
+                    if (slots.compareAndSet(i, pending, updated)) {
+                        expire(System.nanoTime());
+                        return;
+                    }
+                    continue;
+                }
+                // Clearing the slot claims the result, so exactly one callback thread emits it.
+                if (slots.compareAndSet(i, pending, null)) {
+                    completeCount.incrementAndGet();
+                    emit(updated);
+                    return;
+                }
+            }
+        }
+        // The frame already timed out or was evicted; a stale half would undo newer results.
+        lateCount.incrementAndGet();
+    }
+
+    private void expire(long now) {
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            FusedResult pending = slots.get(i);
+            if (pending == null || now - pending.createdNanos < timeoutNanos) {
+                continue;
+            }
+            if (slots.compareAndSet(i, pending, null) && pending.receivedParts != 0) {
+                timedOutCount.incrementAndGet();
+                emit(pending);
+            }
+        }
+    }
+
+    // Results are claimed on the pose, hand, submitting and delivery threads. The CAS on the newest claimed
+    // timestamp drops late results without a lock; the listener only ever runs on the delivery thread.
+    private void emit(FusedResult result) {
+        while (true) {
+            long last = lastClaimedTimestampMs.get();
+            if (result.timestampMs <= last) {
+                lateCount.incrementAndGet();
+                return;
+            }
+            if (lastClaimedTimestampMs.compareAndSet(last, result.timestampMs)) {
+                break;
+            }
+        }
+        ready.offer(result);
+        LockSupport.unpark(thread);
+    }
+
+    // Expiring here as well means a partial frame is still delivered when input stops, e.g. on a mode switch
+    // or while the camera is paused.
+    private void run() {
+        while (running || !ready.isEmpty()) {
+            FusedResult result = ready.poll();
+            if (result == null) {
+                expire(System.nanoTime());
+                if (running && ready.isEmpty()) {
+                    LockSupport.parkNanos(this, expiryCheckNanos);
+                }
+                continue;
+            }
+            // Two claims can reach the queue in the opposite order; the older one is late by then.
+            if (result.timestampMs < lastDeliveredTimestampMs) {
+                lateCount.incrementAndGet();
+                continue;
+            }
+            lastDeliveredTimestampMs = result.timestampMs;
+            listener.onFusedResult(result);
+        }
+    }
+}
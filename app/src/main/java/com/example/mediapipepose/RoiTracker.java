@@ -0,0 +1,235 @@
+package com.example.mediapipepose;
+
+import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
+import java.util.List;
+import java.util.Optional;
+
+public final class RoiTracker {
+    private static final int MAX_PENDING = 8;
+    private static final float DEFAULT_MARGIN_SCALE = 1.6f;
+    private static final float DEFAULT_MIN_SIZE_FRACTION = 0.35f;
+    private static final float FULL_FRAME_FRACTION = 0.85f;
+    private static final float KEEP_MARGIN_FRACTION = 0.08f;
+    private static final float CONFIDENCE_THRESHOLD = 0.5f;
+    private static final int MIN_CONFIDENT_LANDMARKS = 8;
+
+    public static final class Roi {
+        private final int left;
+        private final int top;
+        private final int width;
+        private final int height;
+        private final int frameWidth;
+        private final int frameHeight;
+
+        Roi(int left, int top, int width, int height, int frameWidth, int frameHeight) {
+            this.left = left;
+            this.top = top;
+            this.width = width;
+            this.height = height;
+            this.frameWidth = frameWidth;
+            this.frameHeight = frameHeight;
+        }
+
+        public int getLeft() {
+            return left;
+        }
+
+        public int getTop() {
+            return top;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getFrameWidth() {
+            return frameWidth;
+        }
+
+        public int getFrameHeight() {
+            return frameHeight;
+        }
+
+        public float normalizedLeft() {
+            return (float) left / frameWidth;
+        }
+
+        public float normalizedTop() {
+            return (float) top / frameHeight;
+        }
+
+        public float normalizedWidth() {
+            return (float) width / frameWidth;
+        }
+
+        public float normalizedHeight() {
+            return (float) height / frameHeight;
+        }
+
+        boolean contains(float minX, float maxX, float minY, float maxY) {
+            return minX >= normalizedLeft()
+                    && maxX <= normalizedLeft() + normalizedWidth()
+                    && minY >= normalizedTop()
+                    && maxY <= normalizedTop() + normalizedHeight();
+        }
+    }
+
+    private final float marginScale;
+    private final float minSizeFraction;
+    private final long[] pendingTimestamps = new long[MAX_PENDING];
+    private final Roi[] pendingRois = new Roi[MAX_PENDING];
+    private final float[] bbox = new float[4];
+    private int pendingIndex;
+    private Roi current;
+    private long fullFrameIntervalMs;
+    private long lastFullFrameMs;
+    private long trackedCount;
+    private long lostCount;
+
+    public RoiTracker() {
+        this(DEFAULT_MARGIN_SCALE, DEFAULT_MIN_SIZE_FRACTION);
+    }
+
+    public RoiTracker(float marginScale, float minSizeFraction) {
+        this.marginScale = Math.max(1f, marginScale);
+        this.minSizeFraction = Math.max(0.1f, Math.min(1f, minSizeFraction));
+    }
+
+    // A periodic full-frame pass lets people outside the current crop be discovered; 0 disables it.
+    public synchronized void setFullFrameIntervalMs(long intervalMs) {
+        fullFrameIntervalMs = Math.max(0L, intervalMs);
+    }
+
+    // Returns the crop to use for a frame submitted at timestampMs, or null for the full frame.
+    public synchronized Roi next(int frameWidth, int frameHeight, long timestampMs) {
+        Roi roi = current;
+        if (roi != null && (roi.frameWidth != frameWidth || roi.frameHeight != frameHeight)) {
+            roi = null;
+            current = null;
+        }
+        if (roi == null) {
+            lastFullFrameMs = timestampMs;
+        } else if (fullFrameIntervalMs > 0 && timestampMs - lastFullFrameMs >= fullFrameIntervalMs) {
+            lastFullFrameMs = timestampMs;
+            roi = null;
+        }
+        pendingTimestamps[pendingIndex] = timestampMs;
+        pendingRois[pendingIndex] = roi;
+        pendingIndex = (pendingIndex + 1) % MAX_PENDING;
+        return roi;
+    }
+
+    public synchronized Roi take(long timestampMs) {
+        for (int i = 0; i < MAX_PENDING; i++) {
+            if (pendingTimestamps[i] == timestampMs && pendingRois[i] != null) {
+                Roi roi = pendingRois[i];
+                pendingRois[i] = null;
+                return roi;
+            }
+        }
+        return null;
+    }
+
+    // Landmarks must already be in full-frame coordinates of the unrotated input; the crop covers every pose.
+    public synchronized void update(List<List<NormalizedLandmark>> poses, int frameWidth, int frameHeight) {
+        float minX = 1f;
+        float maxX = 0f;
+        float minY = 1f;
+        float maxY = 0f;
+        boolean found = false;
+        if (poses != null) {
+            for (int i = 0; i < poses.size(); i++) {
+                List<NormalizedLandmark> landmarks = poses.get(i);
+                if (landmarks == null || countConfident(landmarks) < MIN_CONFIDENT_LANDMARKS) {
+                    continue;
+                }
+                LandmarkTransforms.computeBoundingBox(landmarks, bbox);
+                minX = Math.min(minX, clamp01(bbox[0]));
+                maxX = Math.max(maxX, clamp01(bbox[1]));
+                minY = Math.min(minY, clamp01(bbox[2]));
+                maxY = Math.max(maxY, clamp01(bbox[3]));
+                found = true;
+            }
+        }
+        if (!found) {
+            if (current != null) {
+                lostCount += 1;
+            }
+            current = null;
+            return;
+        }
+        Roi roi = current;
+        if (roi != null && roi.frameWidth == frameWidth && roi.frameHeight == frameHeight
+                && roi.contains(
+                        minX - KEEP_MARGIN_FRACTION, maxX + KEEP_MARGIN_FRACTION,
+                        minY - KEEP_MARGIN_FRACTION, maxY + KEEP_MARGIN_FRACTION)) {
+            // Holding the crop still keeps MediaPipe's own frame-to-frame tracking aligned.
+            trackedCount += 1;
+            return;
+        }
+
+        float boxWidth = (maxX - minX) * frameWidth * marginScale;
+        float boxHeight = (maxY - minY) * frameHeight * marginScale;
+        float side = Math.max(boxWidth, boxHeight);
+        int cropWidth = Math.round(Math.min(frameWidth,
+                Math.max(side, frameWidth * minSizeFraction)));
+        int cropHeight = Math.round(Math.min(frameHeight,
+                Math.max(side, frameHeight * minSizeFraction)));
+        if (cropWidth >= frameWidth * FULL_FRAME_FRACTION
+                && cropHeight >= frameHeight * FULL_FRAME_FRACTION) {
+            current = null;
+            return;
+        }
+        float centerX = (minX + maxX) * 0.5f * frameWidth;
+        float centerY = (minY + maxY) * 0.5f * frameHeight;
+        int left = Math.round(centerX - cropWidth * 0.5f);
+        int top = Math.round(centerY - cropHeight * 0.5f);
+        left = Math.max(0, Math.min(frameWidth - cropWidth, left));
+        top = Math.max(0, Math.min(frameHeight - cropHeight, top));
+        current = new Roi(left, top, cropWidth, cropHeight, frameWidth, frameHeight);
+        trackedCount += 1;
+    }
+
+    public synchronized void reset() {
+        current = null;
+        for (int i = 0; i < MAX_PENDING; i++) {
+            pendingRois[i] = null;
+        }
+    }
+
+    public synchronized boolean isTracking() {
+        return current != null;
+    }
+
+    public synchronized long getTrackedCount() {
+        return trackedCount;
+    }
+
+    public synchronized long getLostCount() {
+        return lostCount;
+    }
+
+    private static int countConfident(List<NormalizedLandmark> landmarks) {
+        int count = 0;
+        for (int i = 0; i < landmarks.size(); i++) {
+            NormalizedLandmark landmark = landmarks.get(i);
+            if (landmark == null) {
+                continue;
+            }
+            Optional<Float> visibility = landmark.visibility();
+            if (visibility != null && visibility.isPresent()
+                    && visibility.get() >= CONFIDENCE_THRESHOLD) {
+                count += 1;
+            }
+        }
+        return count;
+    }
+
+    private static float clamp01(float value) {
+        return value < 0f ? 0f : (value > 1f ? 1f : value);
+    }
+}
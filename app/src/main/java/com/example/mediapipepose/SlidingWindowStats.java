@@ -0,0 +1,134 @@
+package com.example.mediapipepose;
+
+public final class SlidingWindowStats {
+    private final long windowMs;
+    private final int capacity;
+    private final long[] timestamps;
+    private final float[] values;
+    // Monotonic deques of sample sequence numbers: values increase along minQueue, decrease along maxQueue.
+    private final long[] minQueue;
+    private final long[] maxQueue;
+    private long headSequence;
+    private long nextSequence;
+    private long minHead;
+    private long minTail;
+    private long maxHead;
+    private long maxTail;
+    private double sum;
+    private double sumOfSquares;
+
+    public SlidingWindowStats(long windowMs, int capacity) {
+        this.windowMs = windowMs;
+        this.capacity = capacity;
+        this.timestamps = new long[capacity];
+        this.values = new float[capacity];
+        this.minQueue = new long[capacity];
+        this.maxQueue = new long[capacity];
+    }
+
+    // Amortized O(1): every sample enters and leaves each deque at most once.
+    public void add(long timestampMs, float value) {
+        evictBefore(timestampMs - windowMs);
+        if (nextSequence - headSequence == capacity) {
+            evictOldest();
+        }
+        long sequence = nextSequence;
+        int slot = slot(sequence);
+        timestamps[slot] = timestampMs;
+        values[slot] = value;
+        nextSequence += 1;
+        sum += value;
+        sumOfSquares += (double) value * value;
+
+        while (minTail > minHead && values[slot(minQueue[slot(minTail - 1)])] >= value) {
+            minTail -= 1;
+        }
+        minQueue[slot(minTail)] = sequence;
+        minTail += 1;
+        while (maxTail > maxHead && values[slot(maxQueue[slot(maxTail - 1)])] <= value) {
+            maxTail -= 1;
+        }
+        maxQueue[slot(maxTail)] = sequence;
+        maxTail += 1;
+    }
+
+    public void evictBefore(long timestampMs) {
+        while (nextSequence > headSequence && timestamps[slot(headSequence)] < timestampMs) {
+            evictOldest();
+        }
+    }
+
+    public void clear() {
+        headSequence = nextSequence;
+        minHead = minTail;
+        maxHead = maxTail;
+        sum = 0d;
+        sumOfSquares = 0d;
+    }
+
+    public int getCount() {
+        return (int) (nextSequence - headSequence);
+    }
+
+    public boolean isEmpty() {
+        return nextSequence == headSequence;
+    }
+
+    public long getSpanMs() {
+        if (isEmpty()) {
+            return 0L;
+        }
+        return timestamps[slot(nextSequence - 1)] - timestamps[slot(headSequence)];
+    }
+
+    public float getMin() {
+        return isEmpty() ? Float.NaN : values[slot(minQueue[slot(minHead)])];
+    }
+
+    public float getMax() {
+        return isEmpty() ? Float.NaN : values[slot(maxQueue[slot(maxHead)])];
+    }
+
+    public float getRange() {
+        return getMax() - getMin();
+    }
+
+    public float getMean() {
+        return isEmpty() ? Float.NaN : (float) (sum / getCount());
+    }
+
+    public float getVariance() {
+        if (isEmpty()) {
+            return Float.NaN;
+        }
+        double mean = sum / getCount();
+        return (float) Math.max(0d, sumOfSquares / getCount() - mean * mean);
+    }
+
+    public float getStandardDeviation() {
+        return (float) Math.sqrt(getVariance());
+    }
+
+    private void evictOldest() {
+        float value = values[slot(headSequence)];
+        if (minQueue[slot(minHead)] == headSequence) {
+            minHead += 1;
+        }
+        if (maxQueue[slot(maxHead)] == headSequence) {
+            maxHead += 1;
+        }
+        headSequence += 1;
+        if (headSequence == nextSequence) {
+            // Recomputing from zero stops float drift from accumulating across long sessions.
+            sum = 0d;
+            sumOfSquares = 0d;
+        } else {
+            sum -= value;
+            sumOfSquares -= (double) value * value;
+        }
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % capacity);
+    }
+}
@@ -178,6 +178,27 @@ public class WebRtcStreamer {
         }
     }
 
+    public void sendPersonLabels(int[] personIds, int[] labels, int count) {
+        if (!started || webSocket == null) {
+            return;
+        }
+        try {
+            JSONArray people = new JSONArray();
+            for (int i = 0; i < count; i++) {
+                JSONObject person = new JSONObject();
+                person.put("id", personIds[i]);
+                person.put("label", PoseAnalyticsEngine.labelName(labels[i]));
+                people.put(person);
+            }
+            JSONObject payload = new JSONObject();
+            payload.put("type", "person-labels");
+            payload.put("people", people);
+            sendMessage(payload);
+        } catch (JSONException exception) {
+            Log.e(TAG, "Failed to send person labels", exception);
+        }
+    }
+
     private void initializePeerConnectionFactory() {
         PeerConnectionFactory.InitializationOptions options =
                 PeerConnectionFactory.InitializationOptions.builder(context)
@@ -0,0 +1,64 @@
+package com.example.mediapipepose;
+
+// Packed PoseAnalyticsEngine frames for a person standing, lying, or part way through a fall.
+final class SyntheticPoses {
+    private static final float CONFIDENCE = 0.9f;
+
+    private SyntheticPoses() {
+    }
+
+    static float[] standing() {
+        float[] frame = new float[PoseAnalyticsEngine.FRAME_SIZE];
+        for (int i = 0; i < PoseAnalyticsEngine.LANDMARK_COUNT; i++) {
+            set(frame, i, 0.5f, 0.2f);
+        }
+        set(frame, 11, 0.45f, 0.3f);
+        set(frame, 12, 0.55f, 0.3f);
+        set(frame, 23, 0.46f, 0.5f);
+        set(frame, 24, 0.54f, 0.5f);
+        set(frame, 25, 0.46f, 0.7f);
+        set(frame, 26, 0.54f, 0.7f);
+        set(frame, 27, 0.46f, 0.88f);
+        set(frame, 28, 0.54f, 0.88f);
+        set(frame, 29, 0.46f, 0.9f);
+        set(frame, 30, 0.54f, 0.9f);
+        return frame;
+    }
+
+    static float[] lying() {
+        float[] frame = new float[PoseAnalyticsEngine.FRAME_SIZE];
+        for (int i = 0; i < PoseAnalyticsEngine.LANDMARK_COUNT; i++) {
+            set(frame, i, 0.2f, 0.85f);
+        }
+        set(frame, 11, 0.3f, 0.85f);
+        set(frame, 12, 0.3f, 0.87f);
+        set(frame, 23, 0.5f, 0.85f);
+        set(frame, 24, 0.5f, 0.87f);
+        set(frame, 25, 0.7f, 0.85f);
+        set(frame, 26, 0.7f, 0.87f);
+        set(frame, 27, 0.88f, 0.85f);
+        set(frame, 28, 0.88f, 0.87f);
+        set(frame, 29, 0.9f, 0.85f);
+        set(frame, 30, 0.9f, 0.87f);
+        return frame;
+    }
+
+    // Linear blend from standing (t = 0) to lying (t = 1).
+    static float[] falling(float t) {
+        float[] from = standing();
+        float[] to = lying();
+        float[] frame = new float[PoseAnalyticsEngine.FRAME_SIZE];
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = from[i] + (to[i] - from[i]) * t;
+        }
+        return frame;
+    }
+
+    private static void set(float[] frame, int index, float x, float y) {
+        int base = index * PoseAnalyticsEngine.STRIDE;
+        frame[base + PoseAnalyticsEngine.OFFSET_X] = x;
+        frame[base + PoseAnalyticsEngine.OFFSET_Y] = y;
+        frame[base + PoseAnalyticsEngine.OFFSET_VISIBILITY] = CONFIDENCE;
+        frame[base + PoseAnalyticsEngine.OFFSET_PRESENCE] = CONFIDENCE;
+    }
+}
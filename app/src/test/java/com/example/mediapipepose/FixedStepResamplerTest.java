@@ -0,0 +1,81 @@
+package com.example.mediapipepose;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class FixedStepResamplerTest {
+    private static final long STEP_MS = 100;
+    private static final long RUN_MS = 2_000;
+    private static final float EPSILON = 1e-4f;
+
+    @Test
+    public void irregularFramesLandOnTheStepGrid() {
+        FixedStepResampler resampler = new FixedStepResampler(STEP_MS, 1);
+        float[][] out = new float[8][1];
+
+        assertEquals(1, resampler.push(new float[] {0f}, 1_000, out));
+        assertEquals(0f, out[0][0], EPSILON);
+        // Within the first step: nothing new on the grid yet.
+        assertEquals(0, resampler.push(new float[] {50f}, 1_050, out));
+        // Steps at 1100 and 1200, interpolated between the frames at 1050 and 1250.
+        assertEquals(2, resampler.push(new float[] {250f}, 1_250, out));
+        assertEquals(100f, out[0][0], EPSILON);
+        assertEquals(200f, out[1][0], EPSILON);
+    }
+
+    @Test
+    public void slowAndFastFrameRatesGiveTheSameSteps() {
+        float[] at4 = resample(250);
+        float[] at12 = resample(1000 / 12);
+        int common = Math.min(at4.length, at12.length);
+        assertEquals(RUN_MS / STEP_MS, common);
+        for (int i = 0; i < common; i++) {
+            // A ramp interpolates exactly, so each step holds its own time whatever the input rate.
+            assertEquals(i * STEP_MS, at4[i], EPSILON);
+            assertEquals(i * STEP_MS, at12[i], EPSILON);
+        }
+    }
+
+    @Test
+    public void framesThatDoNotMoveForwardAreRejected() {
+        FixedStepResampler resampler = new FixedStepResampler(STEP_MS, 1);
+        float[][] out = new float[4][1];
+        resampler.push(new float[] {1f}, 500, out);
+
+        assertEquals(-1, resampler.push(new float[] {2f}, 500, out));
+        assertEquals(-1, resampler.push(new float[] {3f}, 400, out));
+        assertEquals(1, resampler.push(new float[] {4f}, 600, out));
+        assertArrayEquals(new float[] {4f}, out[0], EPSILON);
+    }
+
+    @Test
+    public void aLongGapKeepsOnlyTheNewestSteps() {
+        FixedStepResampler resampler = new FixedStepResampler(STEP_MS, 1);
+        float[][] out = new float[3][1];
+        resampler.push(new float[] {0f}, 0, out);
+
+        assertEquals(3, resampler.push(new float[] {1000f}, 1_000, out));
+        assertEquals(800f, out[0][0], EPSILON);
+        assertEquals(900f, out[1][0], EPSILON);
+        assertEquals(1000f, out[2][0], EPSILON);
+    }
+
+    // Feeds the ramp value = time since start at the given frame interval and returns every step produced.
+    private static float[] resample(long frameIntervalMs) {
+        FixedStepResampler resampler = new FixedStepResampler(STEP_MS, 1);
+        float[][] out = new float[4][1];
+        float[] steps = new float[(int) (RUN_MS / STEP_MS) + 1];
+        int count = 0;
+        for (long t = 0; t <= RUN_MS; t += frameIntervalMs) {
+            int produced = resampler.push(new float[] {t}, t, out);
+            for (int i = 0; i < produced && count < steps.length; i++) {
+                steps[count++] = out[i][0];
+            }
+        }
+        float[] result = new float[count];
+        System.arraycopy(steps, 0, result, 0, count);
+        return result;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.mediapipepose;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class InferenceSchedulerTest {
+    private static final long BUDGET_MS = 120;
+
+    @Test
+    public void newerResultFreesOlderSlots() {
+        InferenceScheduler scheduler = new InferenceScheduler(BUDGET_MS, 2, 4f, 12f);
+        assertTrue(scheduler.trySubmit(100, 1));
+        assertTrue(scheduler.trySubmit(200, 1));
+        assertFalse(scheduler.trySubmit(300, 1));
+
+        // Frame 100 was dropped by the flow limiter and never calls back.
+        scheduler.onResult(200);
+
+        assertEquals(0, scheduler.getInFlightCount());
+        assertTrue(scheduler.trySubmit(400, 1));
+    }
+
+    @Test
+    public void olderFrameWaitsForAllCallbacksOfNewerFrame() {
+        InferenceScheduler scheduler = new InferenceScheduler(BUDGET_MS, 2, 4f, 12f);
+        scheduler.trySubmit(100, 2);
+        scheduler.trySubmit(200, 2);
+
+        scheduler.onResult(200);
+
+        assertEquals(2, scheduler.getInFlightCount());
+    }
+
+    @Test
+    public void lostSlotsExpireWithinThreeBudgets() {
+        long[] nowNanos = {0L};
+        InferenceScheduler scheduler = new InferenceScheduler(BUDGET_MS, 2, 4f, 12f, () -> nowNanos[0]);
+        scheduler.trySubmit(100, 1);
+        scheduler.trySubmit(200, 1);
+        assertFalse(scheduler.trySubmit(300, 1));
+
+        // Up to three budgets a slot may still call back.
+        nowNanos[0] = BUDGET_MS * 3 * 1_000_000L;
+        assertFalse(scheduler.trySubmit(300, 1));
+
+        nowNanos[0] += 1_000_000L;
+        assertTrue(scheduler.trySubmit(400, 1));
+        assertEquals(1, scheduler.getInFlightCount());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.mediapipepose;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PoseAnalyticsEngineTest {
+    private static final long START_MS = 10_000;
+    private static final long FALL_START_MS = 4_000;
+    private static final long FALL_DURATION_MS = 600;
+    private static final long RUN_MS = 20_000;
+    private static final long NOT_DETECTED = -1;
+
+    @Test
+    public void syntheticFallIsDetectedAtTheSameTimeAtAnyFrameRate() {
+        long at5 = detectFall(5);
+        long at15 = detectFall(15);
+        long at30 = detectFall(30);
+
+        for (long detected : new long[] {at5, at15, at30}) {
+            assertTrue("detected " + detected + " ms after the fall",
+                    detected >= 4_400 && detected <= 5_600);
+        }
+        // A phase starts counting at its first qualifying frame, so coarse cadences finish up to a frame later.
+        assertTrue(Math.abs(at5 - at30) <= 200 + 1000 / 30);
+        assertTrue(Math.abs(at15 - at30) <= 1000 / 15 + 1000 / 30);
+    }
+
+    @Test
+    public void standingStillNeverFalls() {
+        PoseAnalyticsEngine engine = new PoseAnalyticsEngine();
+        for (long t = 0; t < RUN_MS; t += 1000 / 15) {
+            engine.process(SyntheticPoses.standing(), PoseAnalyticsEngine.LANDMARK_COUNT, START_MS + t);
+            assertEquals(PoseAnalyticsEngine.EVENT_NONE, engine.getLastEvent());
+        }
+        assertEquals(PoseAnalyticsEngine.FallState.ARMED, engine.getFallState());
+    }
+
+    // Returns the detection time in ms after the fall starts.
+    private static long detectFall(int fps) {
+        PoseAnalyticsEngine engine = new PoseAnalyticsEngine();
+        long detected = NOT_DETECTED;
+        for (long t = 0; t < RUN_MS; t += 1000 / fps) {
+            float[] frame;
+            if (t < FALL_START_MS) {
+                frame = SyntheticPoses.standing();
+            } else if (t < FALL_START_MS + FALL_DURATION_MS) {
+                frame = SyntheticPoses.falling((float) (t - FALL_START_MS) / FALL_DURATION_MS);
+            } else {
+                frame = SyntheticPoses.lying();
+            }
+            engine.process(frame, PoseAnalyticsEngine.LANDMARK_COUNT, START_MS + t);
+            if (engine.getLastEvent() == PoseAnalyticsEngine.EVENT_FALL_DETECTED) {
+                assertEquals("detected twice at " + fps + " fps", NOT_DETECTED, detected);
+                detected = t - FALL_START_MS;
+            }
+        }
+        assertTrue("no fall detected at " + fps + " fps", detected != NOT_DETECTED);
+        return detected;
+    }
+}
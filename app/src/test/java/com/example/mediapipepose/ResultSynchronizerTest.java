@@ -0,0 +1,87 @@
+package com.example.mediapipepose;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class ResultSynchronizerTest {
+    private static final int FRAMES_PER_ROUND = 8;
+    private static final int ROUNDS = 200;
+
+    @Test
+    public void concurrentCallbacksAreDeliveredInOrderOneAtATime() throws InterruptedException {
+        AtomicInteger inListener = new AtomicInteger();
+        AtomicInteger maxInListener = new AtomicInteger();
+        List<Long> delivered = new ArrayList<>();
+        ResultSynchronizer synchronizer = new ResultSynchronizer(10_000L, result -> {
+            maxInListener.accumulateAndGet(inListener.incrementAndGet(), Math::max);
+            delivered.add(result.getTimestampMs());
+            Thread.yield();
+            inListener.decrementAndGet();
+        });
+
+        long timestamp = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long first = timestamp + 1;
+            for (int i = 0; i < FRAMES_PER_ROUND; i++) {
+                synchronizer.expect(++timestamp, ResultSynchronizer.PART_POSE);
+            }
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] threads = new Thread[FRAMES_PER_ROUND];
+            for (int i = 0; i < FRAMES_PER_ROUND; i++) {
+                long frameTimestamp = first + i;
+                threads[i] = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException error) {
+                        return;
+                    }
+                    synchronizer.offerPose(frameTimestamp, null, 1, 1);
+                });
+                threads[i].start();
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        synchronizer.shutdown();
+        synchronizer.awaitTermination();
+
+        assertEquals(1, maxInListener.get());
+        for (int i = 1; i < delivered.size(); i++) {
+            assertTrue(delivered.get(i) > delivered.get(i - 1));
+        }
+        assertEquals(ROUNDS * FRAMES_PER_ROUND,
+                delivered.size() + synchronizer.getLateCount());
+    }
+
+    @Test
+    public void partialFrameIsDeliveredAfterInputStops() throws InterruptedException {
+        CountDownLatch delivered = new CountDownLatch(1);
+        AtomicReference<ResultSynchronizer.FusedResult> fused = new AtomicReference<>();
+        ResultSynchronizer synchronizer = new ResultSynchronizer(20L, result -> {
+            fused.set(result);
+            delivered.countDown();
+        });
+
+        synchronizer.expect(1, ResultSynchronizer.PART_POSE | ResultSynchronizer.PART_HANDS);
+        synchronizer.offerPose(1, null, 1, 1);
+
+        // No later expect or offer arrives; the delivery thread has to time the frame out on its own.
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        synchronizer.shutdown();
+        assertTrue(fused.get().hasPose());
+        assertFalse(fused.get().isComplete());
+        assertEquals(1, synchronizer.getTimedOutCount());
+    }
+}
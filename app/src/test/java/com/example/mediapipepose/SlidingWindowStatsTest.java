@@ -0,0 +1,145 @@
+package com.example.mediapipepose;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+import org.junit.Test;
+
+public class SlidingWindowStatsTest {
+    private static final long WINDOW_MS = 1_000;
+    private static final int CAPACITY = 32;
+    private static final long SEED = 15;
+
+    @Test
+    public void randomizedInputMatchesBruteForceWindow() {
+        Random random = new Random(SEED);
+        SlidingWindowStats stats = new SlidingWindowStats(WINDOW_MS, CAPACITY);
+        BruteForceWindow expected = new BruteForceWindow(WINDOW_MS, CAPACITY);
+        long timestamp = 0;
+        for (int i = 0; i < 50_000; i++) {
+            // Gaps from 0 to 80 ms make the window fill by capacity at times and by age at others.
+            timestamp += random.nextInt(81);
+            float value = (float) random.nextGaussian();
+            if (random.nextInt(4) == 0) {
+                // Repeated values exercise the ties in the monotonic deques.
+                value = Math.round(value * 2f) / 2f;
+            }
+            stats.add(timestamp, value);
+            expected.add(timestamp, value);
+            if (random.nextInt(50) == 0) {
+                long cutoff = timestamp - random.nextInt((int) WINDOW_MS);
+                stats.evictBefore(cutoff);
+                expected.evictBefore(cutoff);
+            }
+            assertMatches(expected, stats, "sample " + i);
+        }
+    }
+
+    @Test
+    public void samplesLeaveExactlyAtTheWindowEdge() {
+        SlidingWindowStats stats = new SlidingWindowStats(WINDOW_MS, CAPACITY);
+        stats.add(0, 5f);
+        stats.add(500, 1f);
+        // A sample exactly windowMs old is still inside the window.
+        stats.add(WINDOW_MS, 3f);
+        assertEquals(3, stats.getCount());
+        assertEquals(5f, stats.getMax(), 0f);
+
+        stats.add(WINDOW_MS + 1, 3f);
+        assertEquals(3, stats.getCount());
+        assertEquals(3f, stats.getMax(), 0f);
+        assertEquals(1f, stats.getMin(), 0f);
+        assertEquals(WINDOW_MS + 1 - 500, stats.getSpanMs());
+    }
+
+    @Test
+    public void varianceDoesNotDriftOverLongRuns() {
+        Random random = new Random(SEED);
+        SlidingWindowStats stats = new SlidingWindowStats(WINDOW_MS, CAPACITY);
+        BruteForceWindow expected = new BruteForceWindow(WINDOW_MS, CAPACITY);
+        long timestamp = 0;
+        // A full window that never empties, so the running sums are never reset. A large offset with small
+        // spread is where the running sum of squares loses the variance first.
+        for (int i = 0; i < 2_000_000; i++) {
+            timestamp += 33;
+            float value = 500f + (float) random.nextGaussian() * 0.01f;
+            stats.add(timestamp, value);
+            expected.add(timestamp, value);
+        }
+        assertMatches(expected, stats, "after a long run");
+    }
+
+    private static void assertMatches(BruteForceWindow expected, SlidingWindowStats stats, String message) {
+        assertEquals(message, expected.values.size(), stats.getCount());
+        assertEquals(message, expected.min(), stats.getMin(), 0f);
+        assertEquals(message, expected.max(), stats.getMax(), 0f);
+        double mean = expected.mean();
+        assertEquals(message, mean, stats.getMean(), 1e-5 * Math.max(1.0, Math.abs(mean)));
+        double variance = expected.variance();
+        assertEquals(message, variance, stats.getVariance(), 1e-4 * variance + 1e-9);
+    }
+
+    private static final class BruteForceWindow {
+        private final long windowMs;
+        private final int capacity;
+        private final ArrayDeque<Long> timestamps = new ArrayDeque<>();
+        private final ArrayDeque<Float> values = new ArrayDeque<>();
+
+        BruteForceWindow(long windowMs, int capacity) {
+            this.windowMs = windowMs;
+            this.capacity = capacity;
+        }
+
+        void add(long timestampMs, float value) {
+            evictBefore(timestampMs - windowMs);
+            if (values.size() == capacity) {
+                timestamps.removeFirst();
+                values.removeFirst();
+            }
+            timestamps.addLast(timestampMs);
+            values.addLast(value);
+        }
+
+        void evictBefore(long timestampMs) {
+            while (!timestamps.isEmpty() && timestamps.peekFirst() < timestampMs) {
+                timestamps.removeFirst();
+                values.removeFirst();
+            }
+        }
+
+        float min() {
+            float min = Float.POSITIVE_INFINITY;
+            for (float value : values) {
+                min = Math.min(min, value);
+            }
+            return min;
+        }
+
+        float max() {
+            float max = Float.NEGATIVE_INFINITY;
+            for (float value : values) {
+                max = Math.max(max, value);
+            }
+            return max;
+        }
+
+        double mean() {
+            double sum = 0.0;
+            for (float value : values) {
+                sum += value;
+            }
+            return sum / values.size();
+        }
+
+        // Two passes, so this is the reference the running sums are checked against.
+        double variance() {
+            double mean = mean();
+            double sum = 0.0;
+            for (float value : values) {
+                sum += (value - mean) * (value - mean);
+            }
+            return sum / values.size();
+        }
+    }
+}
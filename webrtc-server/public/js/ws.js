@@ -30,6 +30,40 @@ const createWebSocketController = ({
     }
   };
 
+  // The sender's own per-person labels win over the server's single label when both are present.
+  const renderSlotLabel = (senderId, slot) => {
+    const people = slot.people || [];
+    const text = people.length > 0
+      ? people.map((person) => `${person.id}: ${person.label}`).join(", ")
+      : (slot.poseLabel || "");
+    slot.label.textContent = text;
+    slot.label.style.display = text ? "block" : "none";
+    const isFallen = slot.poseLabel === "Fallen"
+      || people.some((person) => person.label === "Fallen");
+    if (slot.frame) {
+      slot.frame.classList.toggle("fallen", isFallen);
+    }
+    if (isFallen && !slot.isFallen) {
+      startFallClip(slot);
+    }
+    if (!isFallen && slot.isFallen) {
+      finishFallClip(slot, senderId);
+    }
+    slot.isFallen = isFallen;
+    if (!isFallen) {
+      dismissedFallAlerts.delete(senderId);
+      if (fallAlertEl && fallAlertEl.dataset.senderId === senderId) {
+        hideFallAlert();
+      }
+    }
+    if (isFallen
+        && ((getCurrentMode() === "exception")
+          || (getFocusedSenderId() && senderId !== getFocusedSenderId()))
+        && !dismissedFallAlerts.has(senderId)) {
+      showFallAlert(senderId);
+    }
+  };
+
   const handleWsMessage = async (event) => {
     const message = JSON.parse(event.data);
     if (message.type === "viewer-id") {
@@ -45,32 +79,17 @@ const createWebSocketController = ({
       const senderId = message.senderId;
       const slot = slots.get(senderId);
       if (slot && slot.label) {
-        const text = message.label || "";
-        slot.label.textContent = text;
-        slot.label.style.display = text ? "block" : "none";
-        if (slot.frame) {
-          slot.frame.classList.toggle("fallen", text === "Fallen");
-        }
-        const isFallen = text === "Fallen";
-        if (isFallen && !slot.isFallen) {
-          startFallClip(slot);
-        }
-        if (!isFallen && slot.isFallen) {
-          finishFallClip(slot, senderId);
-        }
-        slot.isFallen = isFallen;
-        if (text !== "Fallen") {
-          dismissedFallAlerts.delete(senderId);
-          if (fallAlertEl && fallAlertEl.dataset.senderId === senderId) {
-            hideFallAlert();
-          }
-        }
-        if (text === "Fallen"
-            && ((getCurrentMode() === "exception")
-              || (getFocusedSenderId() && senderId !== getFocusedSenderId()))
-            && !dismissedFallAlerts.has(senderId)) {
-          showFallAlert(senderId);
-        }
+        slot.poseLabel = message.label || "";
+        renderSlotLabel(senderId, slot);
+      }
+      return;
+    }
+    if (message.type === "person-labels") {
+      const senderId = message.senderId;
+      const slot = slots.get(senderId);
+      if (slot && slot.label) {
+        slot.people = Array.isArray(message.people) ? message.people : [];
+        renderSlotLabel(senderId, slot);
       }
       return;
     }
@@ -130,6 +149,8 @@ const createWebSocketController = ({
       if (slot) {
         finishFallClip(slot, senderId);
         slot.isFallen = false;
+        slot.poseLabel = "";
+        slot.people = [];
       }
       commandController.clearCommandHistory(senderId);
       dismissedFallAlerts.delete(senderId);
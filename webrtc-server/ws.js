@@ -5,6 +5,8 @@ const { RTCPeerConnection, RTCSessionDescription, RTCIceCandidate, MediaStream }
 const iceServers = [{ urls: "stun:stun.l.google.com:19302" }];
 const rtcConfig = { iceServers, sdpSemantics: "unified-plan" };
 const MAX_SENDERS = 4;
+const MAX_PERSON_LABELS = 8;
+const MAX_PERSON_LABEL_LENGTH = 64;
 const COMMAND_TOKEN = (process.env.COMMAND_TOKEN || "").trim();
 
 const startWebSocketServer = ({ server, auth, stmts, pose }) => {
@@ -359,6 +361,27 @@ const startWebSocketServer = ({ server, auth, stmts, pose }) => {
               // ignore
             }
           }
+        } else if (message.type === "person-labels") {
+          if (!Array.isArray(message.people)) {
+            return;
+          }
+          // Viewers get whatever a sender puts here, so bound both the list and each label before fanning out.
+          const people = message.people
+            .slice(0, MAX_PERSON_LABELS)
+            .filter((person) => person && Number.isInteger(person.id) && typeof person.label === "string")
+            .map((person) => ({ id: person.id, label: person.label.slice(0, MAX_PERSON_LABEL_LENGTH) }));
+          const payload = JSON.stringify({
+            type: "person-labels",
+            senderId: socket.senderId,
+            people
+          });
+          for (const viewer of viewers.values()) {
+            try {
+              viewer.socket.send(payload);
+            } catch (error) {
+              // ignore
+            }
+          }
         }
         return;
       }